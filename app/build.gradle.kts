@@ -9,6 +9,7 @@ plugins {
     id("com.github.ben-manes.versions") version "0.52.0"    // Проверка обновлений зависимостей
     id("org.sonarqube") version "6.2.0.5505"    // Интеграция с SonarQube
     id("com.github.johnrengelman.shadow") version "8.1.1"   // Создание fat-jar
+    id("me.champeau.jmh") version "0.7.3"   // Микробенчмарки (src/jmh)
 }
 
 group = "hexlet.code"
@@ -30,9 +31,10 @@ tasks.compileJava {
 dependencies {
     implementation("io.javalin:javalin:6.6.0")  // Веб-фреймворк
     implementation("io.javalin:javalin-rendering:6.6.0")
-    implementation("org.slf4j:slf4j-simple:2.0.9"){
-        exclude(group = "ch.qos.logback")
-    }
+    // Логирование: slf4j API -> log4j2 с асинхронными логгерами на кольцевом буфере (Disruptor)
+    implementation("org.apache.logging.log4j:log4j-slf4j2-impl:2.24.3")
+    implementation("org.apache.logging.log4j:log4j-core:2.24.3")
+    implementation("com.lmax:disruptor:4.0.0")
     implementation("com.konghq:unirest-java:3.14.5")
 
     implementation("org.apache.commons:commons-text:1.13.1")
@@ -91,6 +93,11 @@ tasks {
     }
 }
 
+jmh {
+    jmhVersion.set("1.37")
+    profilers.add("gc")     // Аллокации и объём данных на операцию
+}
+
 sonar {
     properties {
         property("sonar.projectKey", "CherepovAlex_java-project-72")
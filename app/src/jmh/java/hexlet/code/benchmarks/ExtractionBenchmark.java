@@ -0,0 +1,91 @@
+package hexlet.code.benchmarks;
+
+import hexlet.code.check.ExtractionRules;
+import hexlet.code.check.PageFields;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость извлечения полей в зависимости от числа правил: один обход документа по скомпилированным
+// правилам против отдельного selectFirst на каждое поле, как было раньше для title, h1 и description.
+// Страница — тысячи элементов, h1 в самом конце, поэтому обход всегда проходит документ целиком.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractionBenchmark {
+
+    private static final int BLOCKS = 2000;
+
+    @Param({"0", "8", "64"})
+    private int extraRules;
+
+    private Document document;
+    private ExtractionRules rules;
+    private List<String> selectors;
+
+    /**
+     * Строит страницу с метатегами под каждое правило и компилирует правила.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder html = new StringBuilder("<html lang=\"en\"><head><title>Page</title>")
+                .append("<meta name=\"description\" content=\"Description\">");
+        Properties properties = new Properties();
+        selectors = new ArrayList<>(List.of("head title", "h1", "meta[name=description]"));
+        for (int i = 0; i < extraRules; i++) {
+            html.append("<meta name=\"field-").append(i).append("\" content=\"value ").append(i).append("\">");
+            properties.setProperty("field_" + i, "meta[name=field-" + i + "]@content");
+            selectors.add("meta[name=field-" + i + "]");
+        }
+        html.append("</head><body>");
+        for (int i = 0; i < BLOCKS; i++) {
+            html.append("<div class=\"item\"><p>Text ").append(i).append(" <a href=\"/page/").append(i)
+                    .append("\">link</a></p></div>");
+        }
+        html.append("<h1>Heading</h1></body></html>");
+        document = Jsoup.parse(html.toString(), "https://example.com");
+        rules = ExtractionRules.compile(properties);
+    }
+
+    /**
+     * Все поля за один обход.
+     *
+     * @return извлечённые поля
+     */
+    @Benchmark
+    public PageFields singlePass() {
+        return rules.extract(document);
+    }
+
+    /**
+     * Отдельный обход на каждое поле.
+     */
+    @Benchmark
+    public void selectPerRule(Blackhole blackhole) {
+        for (String selector : selectors) {
+            Element element = document.selectFirst(selector);
+            blackhole.consume(element == null ? null : element.text());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package hexlet.code.benchmarks;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.model.UrlCheckSummary;
+import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.UrlCheckRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Сравнение полной выборки последних проверок (SELECT всех колонок, включая description)
+// и облегчённой проекции для /urls. Объём данных на операцию смотреть в gc.alloc.rate.norm (-prof gc).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingBenchmark {
+
+    private static final int CHECKS_PER_URL = 5;
+
+    @Param({"1000"})
+    private int urls;
+
+    @Param({"4096"})
+    private int descriptionLength;
+
+    private HikariDataSource dataSource;
+
+    /**
+     * Поднимает H2 в памяти и заполняет таблицы.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl("jdbc:h2:mem:listing-benchmark;DB_CLOSE_DELAY=-1");
+        dataSource = new HikariDataSource(hikariConfig);
+        BaseRepository.dataSource = dataSource;
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(readSchema());
+        }
+
+        String description = "d".repeat(descriptionLength);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insertUrl = connection.prepareStatement(
+                     "INSERT INTO urls (name, created_at) VALUES (?, ?)");
+             PreparedStatement insertCheck = connection.prepareStatement(
+                     "INSERT INTO url_checks (status_code, title, h1, description, created_at, url_id)"
+                             + " VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= urls; i++) {
+                insertUrl.setString(1, "https://site-" + i + ".example.com");
+                insertUrl.setTimestamp(2, now);
+                insertUrl.addBatch();
+                for (int j = 0; j < CHECKS_PER_URL; j++) {
+                    insertCheck.setInt(1, 200);
+                    insertCheck.setString(2, "Title " + i);
+                    insertCheck.setString(3, "H1 " + i);
+                    insertCheck.setString(4, description);
+                    insertCheck.setTimestamp(5, now);
+                    insertCheck.setLong(6, i);
+                    insertCheck.addBatch();
+                }
+            }
+            insertUrl.executeBatch();
+            insertCheck.executeBatch();
+        }
+    }
+
+    /**
+     * Закрывает пул.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    /**
+     * Прежний путь: все колонки последней проверки.
+     *
+     * @return последние проверки по url_id
+     */
+    @Benchmark
+    public Map<Long, UrlCheck> latestChecksFull() throws SQLException {
+        return UrlCheckRepository.findLatestChecks();
+    }
+
+    /**
+     * Проекция для списка: id, url_id, status_code, created_at.
+     *
+     * @return последние проверки по url_id
+     */
+    @Benchmark
+    public Map<Long, UrlCheckSummary> latestCheckSummaries() throws SQLException {
+        return UrlCheckRepository.findLatestCheckSummaries();
+    }
+
+    private static String readSchema() throws IOException {
+        try (InputStream inputStream = ListingBenchmark.class.getClassLoader().getResourceAsStream("schema.sql")) {
+            if (inputStream == null) {
+                throw new IOException("schema.sql is not on the classpath");
+            }
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
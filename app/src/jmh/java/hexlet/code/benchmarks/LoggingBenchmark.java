@@ -0,0 +1,98 @@
+package hexlet.code.benchmarks;
+
+import hexlet.code.model.Url;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Задержка вызова логгера в потоке запроса: синхронный log4j2 против асинхронных логгеров (Disruptor),
+// и цена конкатенации строк в выключенном debug. Режим выбирается системными свойствами форка.
+// При переполнении буфера асинхронный логгер здесь ждёт (политика Default), а не отбрасывает события,
+// чтобы сравнение не выигрывалось за счёт потерянных сообщений.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+public class LoggingBenchmark {
+
+    private static final String CONFIG = "-Dlog4j2.configurationFile=log4j2-bench.xml";
+    private static final String SYNC = "-Dlog4j2.contextSelector="
+            + "org.apache.logging.log4j.core.selector.ClassLoaderContextSelector";
+    private static final String ASYNC = "-Dlog4j2.contextSelector="
+            + "org.apache.logging.log4j.core.async.AsyncLoggerContextSelector";
+    private static final String BLOCK_WHEN_FULL = "-Dlog4j2.asyncQueueFullPolicy=Default";
+
+    private static final Logger LOG = LoggerFactory.getLogger("hexlet.code.controllers.UrlCheckController");
+
+    private Url url;
+    private List<Url> urls;
+
+    /**
+     * Готовит сайт и список сайтов, как в обработчиках.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        urls = new ArrayList<>();
+        for (long i = 1; i <= 100; i++) {
+            Url item = new Url("https://site-" + i + ".example.com");
+            item.setId(i);
+            item.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+            urls.add(item);
+        }
+        url = urls.get(0);
+    }
+
+    /**
+     * INFO на каждый запрос, синхронная запись в файл в потоке вызова.
+     */
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIG, SYNC})
+    public void syncInfo() {
+        LOG.info("Check {} of url {} is done, status {}", url.getId(), url.getId(), 200);
+    }
+
+    /**
+     * То же сообщение через асинхронный логгер: в потоке вызова только публикация в кольцевой буфер.
+     */
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIG, ASYNC, BLOCK_WHEN_FULL})
+    public void asyncInfo() {
+        LOG.info("Check {} of url {} is done, status {}", url.getId(), url.getId(), 200);
+    }
+
+    /**
+     * Прежний вызов из showUrls: строка со всем списком строится до проверки уровня.
+     */
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIG, ASYNC})
+    public void concatenatedDisabledDebug() {
+        LOG.debug("urls is: " + urls);
+    }
+
+    /**
+     * Параметризованный вызов: при выключенном debug список не превращается в строку.
+     */
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIG, ASYNC})
+    public void parameterizedDisabledDebug() {
+        LOG.debug("urls is: {}", urls);
+    }
+}
@@ -0,0 +1,189 @@
+package hexlet.code.benchmarks;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.model.UrlCheckSummary;
+import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.JdbcUrlCheckStore;
+import hexlet.code.repository.JdbcUrlStore;
+import hexlet.code.repository.UrlCheckStore;
+import hexlet.code.repository.UrlStore;
+import hexlet.code.repository.embedded.EmbeddedStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// H2 в памяти против встроенного журнала на одних и тех же данных: скорость записи пачки проверок
+// (как у стадии persist конвейера) и задержка выборок для /urls и /urls/{id}
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBackendBenchmark {
+
+    private static final int CHECKS_PER_URL = 20;
+    private static final int BATCH_SIZE = 100;
+    private static final int HISTORY_PAGE_SIZE = 10;
+
+    @Param({"jdbc", "embedded"})
+    private String backend;
+
+    @Param({"1000"})
+    private int urls;
+
+    private HikariDataSource dataSource;
+    private EmbeddedStore embeddedStore;
+    private Path directory;
+    private UrlStore urlStore;
+    private UrlCheckStore checkStore;
+    private long nextUrlId;
+
+    /**
+     * Открывает выбранное хранилище и заполняет его сайтами с историей проверок.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        if ("embedded".equals(backend)) {
+            directory = Files.createTempDirectory("repository-benchmark");
+            embeddedStore = EmbeddedStore.open(directory.resolve("store.log"), false);
+            urlStore = embeddedStore.urls();
+            checkStore = embeddedStore.checks();
+        } else {
+            HikariConfig hikariConfig = new HikariConfig();
+            hikariConfig.setJdbcUrl("jdbc:h2:mem:repository-benchmark;DB_CLOSE_DELAY=-1");
+            dataSource = new HikariDataSource(hikariConfig);
+            BaseRepository.dataSource = dataSource;
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute(readSchema());
+            }
+            urlStore = new JdbcUrlStore();
+            checkStore = new JdbcUrlCheckStore();
+        }
+
+        for (int i = 1; i <= urls; i++) {
+            urlStore.save(new Url("https://site-" + i + ".example.com"));
+        }
+        for (int round = 0; round < CHECKS_PER_URL; round++) {
+            List<UrlCheck> checks = new ArrayList<>(urls);
+            for (long urlId = 1; urlId <= urls; urlId++) {
+                checks.add(check(urlId));
+            }
+            checkStore.saveAll(checks);
+        }
+        nextUrlId = 1;
+    }
+
+    /**
+     * Закрывает хранилище и удаляет временные файлы.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (embeddedStore != null) {
+            embeddedStore.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * Пачка проверок одним вызовом, как пишет стадия persist.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void saveBatch() throws SQLException {
+        List<UrlCheck> checks = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            checks.add(check(nextUrlId));
+            nextUrlId = nextUrlId % urls + 1;
+        }
+        checkStore.saveAll(checks);
+    }
+
+    /**
+     * Последние проверки всех сайтов для /urls.
+     *
+     * @return проекции по url_id
+     */
+    @Benchmark
+    public Map<Long, UrlCheckSummary> latestCheckSummaries() throws SQLException {
+        return checkStore.findLatestCheckSummaries();
+    }
+
+    /**
+     * История проверок одного сайта для /urls/{id}.
+     *
+     * @return проверки, новые первыми
+     */
+    @Benchmark
+    public List<UrlCheck> checksOfOneUrl() throws SQLException {
+        long urlId = nextUrlId;
+        nextUrlId = nextUrlId % urls + 1;
+        return checkStore.getAllChecks(urlId);
+    }
+
+    /**
+     * Первая страница истории одного сайта по индексу (url_id, id).
+     *
+     * @return проверки, новые первыми
+     */
+    @Benchmark
+    public List<UrlCheck> checksPageOfOneUrl() throws SQLException {
+        long urlId = nextUrlId;
+        nextUrlId = nextUrlId % urls + 1;
+        return checkStore.findChecksPage(urlId, null, HISTORY_PAGE_SIZE);
+    }
+
+    private static UrlCheck check(long urlId) {
+        UrlCheck check = new UrlCheck(200, "Title " + urlId, "H1 " + urlId, "Description of site " + urlId, urlId);
+        check.setTotalTimeMs(120L);
+        check.setFinalUrl("https://site-" + urlId + ".example.com/");
+        return check;
+    }
+
+    private static String readSchema() throws IOException {
+        try (InputStream inputStream = RepositoryBackendBenchmark.class.getClassLoader()
+                .getResourceAsStream("schema.sql")) {
+            if (inputStream == null) {
+                throw new IOException("schema.sql is not on the classpath");
+            }
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
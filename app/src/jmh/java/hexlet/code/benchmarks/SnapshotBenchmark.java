@@ -0,0 +1,157 @@
+package hexlet.code.benchmarks;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import hexlet.code.repository.DatabaseSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Запись и восстановление снимка H2 в памяти на объёме реального стенда: 10 тысяч сайтов и миллион проверок.
+// Каждое восстановление идёт в пустые таблицы, как при старте приложения. Размер файла пишется в лог.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class SnapshotBenchmark {
+
+    private static final int URLS = 10_000;
+    private static final int INSERT_BATCH = 1000;
+
+    @Param({"1000000"})
+    private int checks;
+
+    @Param({"1000"})
+    private int restoreBatch;
+
+    private HikariDataSource dataSource;
+    private Path directory;
+    private DatabaseSnapshot snapshot;
+
+    /**
+     * Заполняет H2 в памяти и пишет исходный снимок.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl("jdbc:h2:mem:snapshot-benchmark;DB_CLOSE_DELAY=-1");
+        dataSource = new HikariDataSource(hikariConfig);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(readSchema());
+        }
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insertUrl = connection.prepareStatement(
+                     "INSERT INTO urls (name, created_at) VALUES (?, ?)");
+             PreparedStatement insertCheck = connection.prepareStatement(
+                     "INSERT INTO url_checks (status_code, title, h1, description, created_at, url_id,"
+                             + " total_time_ms, final_url) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= URLS; i++) {
+                insertUrl.setString(1, "https://site-" + i + ".example.com");
+                insertUrl.setTimestamp(2, now);
+                insertUrl.addBatch();
+            }
+            insertUrl.executeBatch();
+            for (int i = 0; i < checks; i++) {
+                long urlId = i % URLS + 1;
+                insertCheck.setInt(1, i % 10 == 0 ? 500 : 200);
+                insertCheck.setString(2, "Title " + urlId);
+                insertCheck.setString(3, "H1 " + urlId);
+                insertCheck.setString(4, "Description of site " + urlId + ", check " + i);
+                insertCheck.setTimestamp(5, now);
+                insertCheck.setLong(6, urlId);
+                insertCheck.setLong(7, 100 + i % 900);
+                insertCheck.setString(8, "https://site-" + urlId + ".example.com/");
+                insertCheck.addBatch();
+                if ((i + 1) % INSERT_BATCH == 0) {
+                    insertCheck.executeBatch();
+                }
+            }
+            insertCheck.executeBatch();
+        }
+
+        directory = Files.createTempDirectory("snapshot-benchmark");
+        snapshot = new DatabaseSnapshot(directory.resolve("db.snapshot"), dataSource, restoreBatch);
+        snapshot.write();
+        System.out.println("Snapshot size: " + Files.size(directory.resolve("db.snapshot")) + " bytes");
+    }
+
+    /**
+     * Очищает таблицы перед каждым восстановлением.
+     */
+    @Setup(Level.Invocation)
+    public void truncate() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE url_checks RESTART IDENTITY");
+            statement.execute("TRUNCATE TABLE urls RESTART IDENTITY");
+        }
+    }
+
+    /**
+     * Закрывает пул и удаляет снимок.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dataSource.close();
+        Files.deleteIfExists(directory.resolve("db.snapshot"));
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Старт приложения: пустые таблицы загружаются из снимка пачками.
+     *
+     * @return число строк по таблицам
+     */
+    @Benchmark
+    public Map<String, Long> restore() throws IOException, SQLException {
+        return snapshot.restore();
+    }
+
+    /**
+     * Восстановление и запись снимка; время самой записи — разность с restore().
+     *
+     * @return число строк по таблицам
+     */
+    @Benchmark
+    public Map<String, Long> restoreThenWrite() throws IOException, SQLException {
+        snapshot.restore();
+        return snapshot.write();
+    }
+
+    private static String readSchema() throws IOException {
+        try (InputStream inputStream = SnapshotBenchmark.class.getClassLoader().getResourceAsStream("schema.sql")) {
+            if (inputStream == null) {
+                throw new IOException("schema.sql is not on the classpath");
+            }
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
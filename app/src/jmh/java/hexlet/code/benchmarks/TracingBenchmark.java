@@ -0,0 +1,69 @@
+package hexlet.code.benchmarks;
+
+import hexlet.code.tracing.Span;
+import hexlet.code.tracing.Tracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Накладные расходы трассировки на один запрос: трасса с типичным для /urls/{id} набором участков
+// (обработчик, 4 запроса к БД с получением соединения, рендер). Сравнивать tracing=true с tracing=false;
+// работа внутри участков имитируется Blackhole.consumeCPU, чтобы разница была видна на её фоне.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TracingBenchmark {
+
+    private static final int QUERIES = 4;
+
+    @Param({"false", "true"})
+    private boolean tracing;
+
+    @Param({"0", "1000"})
+    private long work;
+
+    /**
+     * Включает или выключает трассировку для всего прогона.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Tracer.setEnabled(tracing);
+    }
+
+    /**
+     * Один запрос с полным набором участков.
+     */
+    @Benchmark
+    public void request() {
+        Tracer.startTrace("GET /urls/1");
+        for (int i = 0; i < QUERIES; i++) {
+            try (Span query = Tracer.span("UrlCheckRepository.getAllChecks")) {
+                try (Span connection = Tracer.span("db.connection")) {
+                    Blackhole.consumeCPU(work);
+                }
+                Blackhole.consumeCPU(work);
+            }
+        }
+        try (Span render = Tracer.span("render urls/show.html")) {
+            Blackhole.consumeCPU(work);
+        }
+        Tracer.finishTrace(200);
+    }
+}
@@ -3,11 +3,24 @@ package hexlet.code;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
+import hexlet.code.alerts.AlertDispatcher;
+import hexlet.code.controllers.AdminController;
+import hexlet.code.controllers.DebugController;
+import hexlet.code.controllers.EventController;
+import hexlet.code.controllers.Flash;
+import hexlet.code.controllers.MetricsController;
 import hexlet.code.controllers.RootController;
 import hexlet.code.controllers.UrlController;
 import hexlet.code.controllers.UrlCheckController;
 
 import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.DatabaseSnapshot;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.repository.embedded.EmbeddedStore;
+import hexlet.code.tracing.Span;
+import hexlet.code.tracing.Tracer;
+import hexlet.code.util.Env;
 
 import io.javalin.Javalin;
 import io.javalin.rendering.template.JavalinThymeleaf;
@@ -23,9 +36,11 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -35,14 +50,26 @@ public class App {
     private static final String DEFAULT_PORT = "8081";
     private static final String DEFAULT_MODE = "production";
     private static final String ADDITIONAL_MODE = "development";
+    private static final String PRIMARY_PIN_COOKIE = "db-primary";
+    private static final int READ_YOUR_WRITES_SECONDS = Env.getInt("READ_YOUR_WRITES_SECONDS", 5);
+    private static final String EVENT_STREAM = "text/event-stream";
     private static HikariDataSource dataSource;
+    private static HikariDataSource readDataSource;
+    private static EmbeddedStore embeddedStore;
+    private static DatabaseSnapshot snapshot;
 
     public static void main(String[] args) throws SQLException, IOException {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            AlertDispatcher.stop();
+            closeSnapshot();
             if (dataSource != null) {
                 log.info("Closing database connection pool...");
                 dataSource.close();
             }
+            if (readDataSource != null) {
+                readDataSource.close();
+            }
+            closeEmbeddedStore();
         }));
         Javalin app = getApp();
         app.start(getPort());
@@ -54,9 +81,9 @@ public class App {
 
     public static Javalin getApp() throws IOException, SQLException {
 
-        HikariConfig hikariConfig = new HikariConfig();
-        hikariConfig.setJdbcUrl(getDatabaseUrl());
-        dataSource = new HikariDataSource(hikariConfig);
+        dataSource = createPool("primary", getDatabaseUrl());
+        String readDatabaseUrl = getReadDatabaseUrl();
+        readDataSource = readDatabaseUrl == null ? null : createPool("replica", readDatabaseUrl);
         var url = App.class.getClassLoader().getResource("schema.sql");
 
         File file;
@@ -75,18 +102,28 @@ public class App {
             sql = getDefaultSchema();
         }
 
-        try (Connection connection = dataSource.getConnection();
-             Statement statement = connection.createStatement()) {
-            statement.execute(sql);
-        }
+        executeSchema(dataSource, sql);
 
         BaseRepository.dataSource = dataSource;
+        BaseRepository.readDataSource = readDataSource;
+        configureRepositories();
+        restoreSnapshot();
+        startAlerts();
 
         Javalin app = Javalin.create(config -> {
             if (!isProduction()) {
                 config.bundledPlugins.enableDevLogging();
             }
-            config.fileRenderer(new JavalinThymeleaf(getTemplateEngine()));
+            JavalinThymeleaf thymeleaf = new JavalinThymeleaf(getTemplateEngine());
+            config.fileRenderer((filePath, model, context) -> {
+                Flash.consume(context);
+                if (!Tracer.isActive()) {
+                    return thymeleaf.render(filePath, model, context);
+                }
+                try (Span span = Tracer.span("render " + filePath)) {
+                    return thymeleaf.render(filePath, model, context);
+                }
+            });
         });
 
         app.exception(Exception.class, (e, ctx) -> {
@@ -104,10 +141,119 @@ public class App {
 
         app.before(ctx -> {
             ctx.attribute("ctx", ctx);
+            BaseRepository.startRequest(ctx.cookie(PRIMARY_PIN_COOKIE) != null);
+            // SSE-подключение живёт минутами, как трасса запроса оно только вытеснило бы полезные
+            if (!EVENT_STREAM.equals(ctx.header("Accept"))) {
+                Tracer.startTrace(ctx.method() + " " + ctx.path());
+            }
+        });
+
+        app.after(ctx -> {
+            if (BaseRepository.finishRequest()) {
+                ctx.cookie(PRIMARY_PIN_COOKIE, "1", READ_YOUR_WRITES_SECONDS);
+            }
+            Tracer.finishTrace(ctx.statusCode());
         });
 
         return app;
     }
+
+    // REPOSITORY_BACKEND=embedded переводит сайты и проверки во встроенный журнал; пулы БД при этом остаются
+    // для метрик и схемы, но запросы к ним не идут
+    private static void configureRepositories() throws IOException {
+        String backend = Env.get("REPOSITORY_BACKEND", "jdbc");
+        if (!"embedded".equals(backend)) {
+            return;
+        }
+        if (embeddedStore == null) {
+            embeddedStore = EmbeddedStore.open(Path.of(Env.get("EMBEDDED_STORE_PATH", "data/page-analyzer.log")),
+                    Env.getBoolean("EMBEDDED_FSYNC", false));
+            embeddedStore.startCompaction(Env.getLong("EMBEDDED_COMPACT_INTERVAL_S", 60),
+                    Env.getDouble("EMBEDDED_COMPACT_RATIO", 0.5),
+                    Env.getLong("EMBEDDED_COMPACT_MIN_BYTES", 16L * 1024 * 1024));
+        }
+        UrlRepository.use(embeddedStore.urls());
+        UrlCheckRepository.use(embeddedStore.checks());
+        log.info("Repository backend: embedded store");
+    }
+
+    // SNAPSHOT_PATH сохраняет H2 в памяти между перезапусками: таблицы загружаются из снимка до приёма
+    // запросов, снимок пишется каждые SNAPSHOT_INTERVAL_S и при остановке. Для настоящей БД и встроенного
+    // журнала снимок не нужен — данные и так переживают перезапуск
+    private static void restoreSnapshot() throws IOException, SQLException {
+        String path = Env.get("SNAPSHOT_PATH", "");
+        if (path.isBlank() || embeddedStore != null || !getDatabaseUrl().startsWith("jdbc:h2:mem:")) {
+            return;
+        }
+        // Снимок запоминается только после успешного восстановления: иначе хук остановки
+        // перезаписал бы его пустыми таблицами
+        DatabaseSnapshot restored = new DatabaseSnapshot(Path.of(path), dataSource,
+                Env.getInt("SNAPSHOT_RESTORE_BATCH", 1000));
+        restored.restore();
+        restored.startPeriodic(Env.getLong("SNAPSHOT_INTERVAL_S", 300));
+        snapshot = restored;
+    }
+
+    // ALERT_WEBHOOK_URLS включает оповещения о смене кода ответа и заголовка. Outbox — таблица в БД,
+    // пишется в транзакции проверки, поэтому со встроенным журналом оповещения недоступны
+    private static void startAlerts() {
+        List<String> endpoints = AlertDispatcher.configuredEndpoints();
+        if (endpoints.isEmpty()) {
+            return;
+        }
+        if (embeddedStore != null) {
+            log.warn("Status alerts need the jdbc repository backend, ALERT_WEBHOOK_URLS is ignored");
+            return;
+        }
+        AlertDispatcher.start(endpoints);
+    }
+
+    public static DatabaseSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private static void closeSnapshot() {
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            snapshot.close();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write the database snapshot on shutdown", e);
+        }
+        snapshot = null;
+    }
+
+    public static EmbeddedStore getEmbeddedStore() {
+        return embeddedStore;
+    }
+
+    private static void closeEmbeddedStore() {
+        if (embeddedStore == null) {
+            return;
+        }
+        try {
+            embeddedStore.close();
+        } catch (IOException e) {
+            log.error("Failed to close the embedded store", e);
+        }
+        embeddedStore = null;
+    }
+
+    private static HikariDataSource createPool(String role, String jdbcUrl) {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl(jdbcUrl);
+        hikariConfig.setPoolName(role);
+        return new HikariDataSource(hikariConfig);
+    }
+
+    private static void executeSchema(HikariDataSource target, String sql) throws SQLException {
+        try (Connection connection = target.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
     private static String getDefaultSchema() {
         return """
             DROP TABLE IF EXISTS urls;
@@ -118,14 +264,46 @@ public class App {
             );
             DROP TABLE IF EXISTS url_checks;
             CREATE TABLE url_checks (
-                id          BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
-                status_code INTEGER                                 NOT NULL,
-                title       VARCHAR(255),
-                h1          VARCHAR(255),
-                description TEXT,
-                created_at  TIMESTAMP                               NOT NULL,
-                url_id      BIGINT                                  NOT NULL
+                id                 BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+                status_code        INTEGER,
+                title              VARCHAR(255),
+                h1                 VARCHAR(255),
+                description        TEXT,
+                created_at         TIMESTAMP                               NOT NULL,
+                url_id             BIGINT                                  NOT NULL,
+                connect_time_ms    BIGINT,
+                ttfb_ms            BIGINT,
+                total_time_ms      BIGINT,
+                body_bytes         BIGINT,
+                transfer_bytes     BIGINT,
+                redirect_count     INTEGER,
+                final_url          VARCHAR(2048),
+                body_hash          VARCHAR(64),
+                broken_links_count INTEGER,
+                broken_links       TEXT,
+                fields             TEXT,
+                error              VARCHAR(1024)
+            );
+            CREATE INDEX url_checks_url_id_id ON url_checks (url_id, id);
+            DROP TABLE IF EXISTS check_alerts;
+            CREATE TABLE check_alerts (
+                id                BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+                endpoint          VARCHAR(2048)                           NOT NULL,
+                url_id            BIGINT                                  NOT NULL,
+                check_id          BIGINT                                  NOT NULL,
+                previous_check_id BIGINT                                  NOT NULL,
+                old_status_code   INTEGER,
+                new_status_code   INTEGER,
+                old_title         VARCHAR(255),
+                new_title         VARCHAR(255),
+                created_at        TIMESTAMP                               NOT NULL,
+                attempts          INTEGER                                 NOT NULL,
+                next_attempt_at   TIMESTAMP                               NOT NULL,
+                delivered_at      TIMESTAMP,
+                last_error        VARCHAR(1024)
             );
+            CREATE UNIQUE INDEX check_alerts_check_id_endpoint ON check_alerts (check_id, endpoint);
+            CREATE INDEX check_alerts_endpoint_id ON check_alerts (endpoint, id);
             """;
     }
 
@@ -133,8 +311,29 @@ public class App {
         app.get("/", RootController.welcome);
         app.get("/urls", UrlController.showUrls);
         app.post("/urls", UrlController.createUrl);
+        app.post("/urls/checks", UrlCheckController.checkAll);
         app.get("/urls/{id}", UrlController.showUrlById);
         app.post("/urls/{id}/checks", UrlCheckController.addCheck);
+        app.get("/metrics/pools", MetricsController.pools);
+        app.get("/metrics/checks", MetricsController.checks);
+        app.get("/metrics/archive", AdminController.archiveStats);
+        app.get("/metrics/store", MetricsController.store);
+        app.get("/metrics/alerts", MetricsController.alerts);
+        app.get("/metrics/breakers", MetricsController.breakers);
+        app.get("/metrics/crawler", MetricsController.crawler);
+        // Трассы раскрывают запросы и SQL, поэтому доступны только с тем же токеном, что и /admin
+        app.before("/debug/*", AdminController.requireToken);
+        app.get("/debug/traces", DebugController.traces);
+        app.before("/admin/*", AdminController.requireToken);
+        app.post("/admin/archive/reextract", AdminController.startReextraction);
+        app.get("/admin/archive/reextract", AdminController.reextractionProgress);
+        app.get("/admin/checks/{id}/body", AdminController.archivedBody);
+        app.post("/admin/urls/delete", AdminController.startUrlDeletion);
+        app.get("/admin/urls/delete", AdminController.urlDeletionProgress);
+        app.delete("/admin/urls/{id}", AdminController.deleteUrl);
+        app.get("/admin/jfr", AdminController.flightRecording);
+        app.sse("/events/checks", EventController.allChecks);
+        app.sse("/urls/{id}/events", EventController.urlChecks);
     }
 
     private static String getMode() {
@@ -152,6 +351,14 @@ public class App {
                 .getOrDefault("JDBC_DATABASE_URL", "jdbc:h2:mem:project");
     }
 
+    // JDBC_READ_DATABASE_URL должен указывать на потоковую реплику основной БД: схема и данные приходят
+    // на неё репликацией, приложение туда не пишет. Отдельная база без репликации вернёт пустые или
+    // устаревшие данные на всех чтениях, кроме тех, что идут после собственной записи
+    private static String getReadDatabaseUrl() {
+        String url = System.getenv("JDBC_READ_DATABASE_URL");
+        return url == null || url.isBlank() ? null : url;
+    }
+
     private static TemplateEngine getTemplateEngine() {
 
         TemplateEngine templateEngine = new TemplateEngine();
@@ -168,9 +375,16 @@ public class App {
     }
 
     public static void stop() {
+        AlertDispatcher.stop();
+        closeSnapshot();
         if (dataSource != null) {
             dataSource.close();
             dataSource = null;
         }
+        if (readDataSource != null) {
+            readDataSource.close();
+            readDataSource = null;
+        }
+        closeEmbeddedStore();
     }
 }
@@ -0,0 +1,206 @@
+package hexlet.code.alerts;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hexlet.code.model.StatusAlert;
+import hexlet.code.repository.AlertOutbox;
+import hexlet.code.util.Env;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Доставка оповещений из check_alerts на адреса ALERT_WEBHOOK_URLS (через запятую). Фоновый поток раз
+// в ALERT_POLL_MS забирает по каждому адресу до ALERT_BATCH_SIZE оповещений и отправляет их одним POST
+// с JSON {"alerts": [...]}. Проверки сюда не попадают: они только пишут строку в outbox своей транзакцией.
+// Ошибка или ответ не 2xx откладывают пачку и весь адрес на ALERT_BACKOFF_MS * 2^(попытка - 1),
+// но не дольше ALERT_MAX_BACKOFF_MS; после ALERT_MAX_ATTEMPTS попыток оповещение бросается.
+// Доставка «хотя бы один раз»: если ответ потерялся, пачка уйдёт снова с теми же id, по ним получатель
+// и отбрасывает повторы.
+@Slf4j
+public final class AlertDispatcher {
+
+    private static final int BATCH_SIZE = Env.getInt("ALERT_BATCH_SIZE", 100);
+    private static final int MAX_ATTEMPTS = Env.getInt("ALERT_MAX_ATTEMPTS", 10);
+    private static final long POLL_MS = Env.getLong("ALERT_POLL_MS", 1_000);
+    private static final long BACKOFF_MS = Env.getLong("ALERT_BACKOFF_MS", 1_000);
+    private static final long MAX_BACKOFF_MS = Env.getLong("ALERT_MAX_BACKOFF_MS", 600_000);
+    private static final long TIMEOUT_MS = Env.getLong("ALERT_TIMEOUT_MS", 5_000);
+    private static final long RETENTION_MS = TimeUnit.HOURS.toMillis(Env.getLong("ALERT_RETENTION_H", 24));
+    private static final long CLEANUP_INTERVAL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(TIMEOUT_MS))
+            .build();
+
+    // Адрес, отправка на который не удалась, не трогается до этого момента
+    private static final Map<String, Instant> PAUSED_UNTIL = new ConcurrentHashMap<>();
+    private static final LongAdder BATCHES = new LongAdder();
+    private static final LongAdder DELIVERED = new LongAdder();
+    private static final LongAdder FAILURES = new LongAdder();
+    private static ScheduledExecutorService timer;
+    private static Instant lastCleanup = Instant.EPOCH;
+
+    private AlertDispatcher() {
+    }
+
+    public static List<String> configuredEndpoints() {
+        return Arrays.stream(Env.get("ALERT_WEBHOOK_URLS", "").split(","))
+                .map(String::trim)
+                .filter(endpoint -> !endpoint.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    // Включает запись смен в outbox и запускает доставку; пустой список — оповещения выключены
+    public static synchronized void start(List<String> endpoints) {
+        AlertOutbox.setEndpoints(endpoints);
+        if (timer != null || endpoints.isEmpty()) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "alert-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(() -> {
+            try {
+                dispatch(Instant.now());
+            } catch (SQLException | RuntimeException e) {
+                log.error("Alert dispatch failed", e);
+            }
+        }, POLL_MS, POLL_MS, TimeUnit.MILLISECONDS);
+        log.info("Status alerts are delivered to {}", endpoints);
+    }
+
+    public static synchronized void stop() {
+        AlertOutbox.setEndpoints(List.of());
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+        PAUSED_UNTIL.clear();
+    }
+
+    // Один проход по всем адресам на момент now; возвращает число доставленных оповещений.
+    // Публичный, чтобы тесты могли проверить доставку и повторы без таймера
+    public static synchronized int dispatch(Instant now) throws SQLException {
+        int delivered = 0;
+        for (String endpoint : AlertOutbox.getEndpoints()) {
+            Instant pausedUntil = PAUSED_UNTIL.get(endpoint);
+            if (pausedUntil != null && now.isBefore(pausedUntil)) {
+                continue;
+            }
+            PAUSED_UNTIL.remove(endpoint);
+            delivered += drain(endpoint, now);
+        }
+        if (now.isAfter(lastCleanup.plusMillis(CLEANUP_INTERVAL_MS))) {
+            lastCleanup = now;
+            AlertOutbox.deleteDelivered(Timestamp.from(now.minusMillis(RETENTION_MS)));
+        }
+        return delivered;
+    }
+
+    public static Map<String, Object> stats() throws SQLException {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("endpoints", AlertOutbox.getEndpoints());
+        stats.put("batches", BATCHES.sum());
+        stats.put("delivered", DELIVERED.sum());
+        stats.put("failures", FAILURES.sum());
+        Map<String, String> paused = new LinkedHashMap<>();
+        PAUSED_UNTIL.forEach((endpoint, until) -> paused.put(endpoint, until.toString()));
+        stats.put("pausedUntil", paused);
+        stats.put("outbox", AlertOutbox.counts(MAX_ATTEMPTS));
+        return stats;
+    }
+
+    // Пачки подряд, пока адрес принимает и очередь не пуста
+    private static int drain(String endpoint, Instant now) throws SQLException {
+        int delivered = 0;
+        while (true) {
+            List<StatusAlert> alerts = AlertOutbox.findPending(endpoint, Timestamp.from(now), MAX_ATTEMPTS,
+                    BATCH_SIZE);
+            if (alerts.isEmpty()) {
+                return delivered;
+            }
+            BATCHES.increment();
+            String error = send(endpoint, alerts);
+            if (error != null) {
+                FAILURES.increment();
+                int attempt = alerts.stream().mapToInt(StatusAlert::attempts).max().orElse(0) + 1;
+                Instant retryAt = now.plusMillis(backoff(attempt));
+                AlertOutbox.markFailed(alerts, Timestamp.from(retryAt), error);
+                PAUSED_UNTIL.put(endpoint, retryAt);
+                log.warn("Alert delivery to {} failed (attempt {}), retry at {}: {}",
+                        endpoint, attempt, retryAt, error);
+                return delivered;
+            }
+            AlertOutbox.markDelivered(alerts, Timestamp.from(now));
+            DELIVERED.add(alerts.size());
+            delivered += alerts.size();
+            if (alerts.size() < BATCH_SIZE) {
+                return delivered;
+            }
+        }
+    }
+
+    private static long backoff(int attempt) {
+        int shift = Math.min(attempt - 1, 30);
+        return Math.min(BACKOFF_MS << shift, MAX_BACKOFF_MS);
+    }
+
+    // null — пачка принята, иначе описание ошибки для last_error
+    private static String send(String endpoint, List<StatusAlert> alerts) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint))
+                    .timeout(Duration.ofMillis(TIMEOUT_MS))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(toJson(alerts)))
+                    .build();
+            HttpResponse<Void> response = CLIENT.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() / 100 == 2 ? null : "HTTP " + response.statusCode();
+        } catch (IOException | IllegalArgumentException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Interrupted";
+        }
+    }
+
+    private static String toJson(List<StatusAlert> alerts) throws JsonProcessingException {
+        List<Map<String, Object>> items = new ArrayList<>(alerts.size());
+        for (StatusAlert alert : alerts) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", alert.id());
+            item.put("urlId", alert.urlId());
+            item.put("url", alert.url());
+            item.put("checkId", alert.checkId());
+            item.put("previousCheckId", alert.previousCheckId());
+            item.put("oldStatusCode", alert.oldStatusCode());
+            item.put("newStatusCode", alert.newStatusCode());
+            item.put("oldTitle", alert.oldTitle());
+            item.put("newTitle", alert.newTitle());
+            item.put("changedAt", alert.createdAt().toInstant().toString());
+            items.add(item);
+        }
+        return MAPPER.writeValueAsString(Map.of("alerts", items));
+    }
+}
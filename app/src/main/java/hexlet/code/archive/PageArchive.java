@@ -0,0 +1,320 @@
+package hexlet.code.archive;
+
+import hexlet.code.util.Env;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Архив тел страниц с адресацией по содержимому. Ключ — SHA-256 тела, одинаковые тела хранятся один раз.
+// Записи дописываются в конец сегментных файлов (segment-00001.dat, ...) и никогда не меняются:
+//   magic(4) | sha256(32) | длина сжатых данных(4) | длина исходных данных(4) | данные Deflate
+// Индекс hash -> положение в сегменте держится в памяти и восстанавливается чтением заголовков при старте.
+// Чтение идёт через отображённые в память сегменты, без копирования сжатых данных в кучу.
+// Архив выключен по умолчанию (ARCHIVE_ENABLED) и ограничен ARCHIVE_MAX_SEGMENTS сегментами: при открытии
+// нового сегмента сверх лимита самый старый удаляется вместе с его телами. Проверка, чьё тело вытеснено,
+// сохраняет body_hash, но читается как отсутствующая в архиве.
+@Slf4j
+public final class PageArchive implements Closeable {
+
+    private static final boolean ENABLED = Env.getBoolean("ARCHIVE_ENABLED", false);
+    private static final int RECORD_MAGIC = 0x50414745;
+    private static final int HASH_BYTES = 32;
+    private static final int HEADER_BYTES = 4 + HASH_BYTES + 4 + 4;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private static PageArchive defaultArchive;
+
+    private final Path directory;
+    private final long segmentMaxBytes;
+    private final int maxSegments;
+    private final int compressionLevel;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final Map<Integer, MappedByteBuffer> mappedSegments = new ConcurrentHashMap<>();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    private FileChannel activeChannel;
+    private int activeSegment;
+    private long activeSize;
+
+    public PageArchive(Path directory, long segmentMaxBytes, int compressionLevel) throws IOException {
+        this(directory, segmentMaxBytes, compressionLevel, Integer.MAX_VALUE);
+    }
+
+    public PageArchive(Path directory, long segmentMaxBytes, int compressionLevel, int maxSegments)
+            throws IOException {
+        if (segmentMaxBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must fit into a single memory mapping");
+        }
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("Archive needs at least one segment");
+        }
+        this.directory = directory;
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.maxSegments = maxSegments;
+        this.compressionLevel = compressionLevel;
+        Files.createDirectories(directory);
+        List<Integer> segments = listSegments();
+        for (int segment : segments) {
+            loadSegment(segment, segment == segments.get(segments.size() - 1));
+        }
+        activeSegment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+        openActive();
+        evictOldSegments();
+        log.info("Page archive {} opened: {} segments, {} bodies", directory, segments.size(), index.size());
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // Архив приложения: ARCHIVE_DIR, по умолчанию во временном каталоге; не больше
+    // ARCHIVE_MAX_SEGMENTS * ARCHIVE_SEGMENT_BYTES на диске (по умолчанию 16 * 64 МБ)
+    public static synchronized PageArchive getDefault() throws IOException {
+        if (defaultArchive == null) {
+            Path directory = Path.of(Env.get("ARCHIVE_DIR",
+                    Path.of(System.getProperty("java.io.tmpdir"), "page-analyzer-archive").toString()));
+            defaultArchive = new PageArchive(directory,
+                    Env.getLong("ARCHIVE_SEGMENT_BYTES", 64L * 1024 * 1024),
+                    Env.getInt("ARCHIVE_COMPRESSION_LEVEL", Deflater.DEFAULT_COMPRESSION),
+                    Env.getInt("ARCHIVE_MAX_SEGMENTS", 16));
+        }
+        return defaultArchive;
+    }
+
+    // Возвращает hex SHA-256 тела. Сжатие выполняется вне блокировки, под ней только дозапись в файл.
+    public String store(String body) throws IOException {
+        byte[] raw = body.getBytes(StandardCharsets.UTF_8);
+        String hash = HEX.formatHex(sha256(raw));
+        if (index.containsKey(hash)) {
+            deduplicated.increment();
+            return hash;
+        }
+        byte[] compressed = compress(raw);
+        synchronized (this) {
+            if (index.containsKey(hash)) {
+                deduplicated.increment();
+                return hash;
+            }
+            if (activeSize > 0 && activeSize + HEADER_BYTES + compressed.length > segmentMaxBytes) {
+                activeChannel.close();
+                activeSegment++;
+                openActive();
+                evictOldSegments();
+            }
+            ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + compressed.length);
+            record.putInt(RECORD_MAGIC).put(HEX.parseHex(hash)).putInt(compressed.length).putInt(raw.length);
+            record.put(compressed).flip();
+            while (record.hasRemaining()) {
+                activeChannel.write(record);
+            }
+            index.put(hash, new Location(activeSegment, activeSize + HEADER_BYTES, compressed.length, raw.length));
+            activeSize += HEADER_BYTES + compressed.length;
+        }
+        stored.increment();
+        rawBytes.addAndGet(raw.length);
+        compressedBytes.addAndGet(compressed.length);
+        return hash;
+    }
+
+    public boolean contains(String hash) {
+        return index.containsKey(hash);
+    }
+
+    public Optional<String> read(String hash) throws IOException {
+        Location location = hash == null ? null : index.get(hash);
+        if (location == null) {
+            return Optional.empty();
+        }
+        ByteBuffer data = mapped(location).slice((int) location.offset(), location.compressedLength());
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] raw = new byte[location.rawLength()];
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != raw.length) {
+                throw new IOException("Archived body " + hash + " is truncated");
+            }
+            return Optional.of(new String(raw, StandardCharsets.UTF_8));
+        } catch (DataFormatException e) {
+            throw new IOException("Archived body " + hash + " is corrupted", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public Map<String, Object> stats() throws IOException {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long diskBytes = 0;
+        List<Integer> segments = listSegments();
+        for (int segment : segments) {
+            diskBytes += Files.size(segmentPath(segment));
+        }
+        long raw = rawBytes.get();
+        stats.put("directory", directory.toString());
+        stats.put("segments", segments.size());
+        stats.put("bodies", index.size());
+        stats.put("diskBytes", diskBytes);
+        stats.put("storedSinceStart", stored.sum());
+        stats.put("deduplicatedSinceStart", deduplicated.sum());
+        stats.put("maxSegments", maxSegments);
+        stats.put("evictedSegmentsSinceStart", evicted.sum());
+        stats.put("compressionRatio", raw == 0 ? 0 : Math.round(compressedBytes.get() * 1000.0 / raw) / 1000.0);
+        return stats;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mappedSegments.clear();
+        activeChannel.close();
+    }
+
+    // Активный сегмент растёт, поэтому отображение пересоздаётся, если запись лежит дальше его конца
+    private MappedByteBuffer mapped(Location location) throws IOException {
+        long end = location.offset() + location.compressedLength();
+        MappedByteBuffer buffer = mappedSegments.get(location.segment());
+        if (buffer == null || buffer.capacity() < end) {
+            try (FileChannel channel = FileChannel.open(segmentPath(location.segment()), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            mappedSegments.put(location.segment(), buffer);
+        }
+        return buffer;
+    }
+
+    // Самые старые сегменты сверх maxSegments удаляются вместе с их записями в индексе.
+    // Вызывается под монитором архива; чтение, уже получившее положение в удалённом сегменте,
+    // дочитывает из ранее сделанного отображения или получает IOException
+    private void evictOldSegments() throws IOException {
+        List<Integer> segments = listSegments();
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            int segment = segments.get(i);
+            index.values().removeIf(location -> location.segment() == segment);
+            mappedSegments.remove(segment);
+            Files.deleteIfExists(segmentPath(segment));
+            evicted.increment();
+            log.info("Archive segment {} evicted, {} bodies left", segmentPath(segment), index.size());
+        }
+    }
+
+    // Хвост последнего сегмента после сбоя посреди записи отрезается
+    private void loadSegment(int segment, boolean last) throws IOException {
+        Path path = segmentPath(segment);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            byte[] hash = new byte[HASH_BYTES];
+            while (position + HEADER_BYTES <= size) {
+                header.clear();
+                channel.read(header, position);
+                header.flip();
+                if (header.getInt() != RECORD_MAGIC) {
+                    break;
+                }
+                header.get(hash);
+                int compressedLength = header.getInt();
+                int rawLength = header.getInt();
+                if (position + HEADER_BYTES + compressedLength > size) {
+                    break;
+                }
+                index.putIfAbsent(HEX.formatHex(hash),
+                        new Location(segment, position + HEADER_BYTES, compressedLength, rawLength));
+                position += HEADER_BYTES + compressedLength;
+            }
+            if (position < size) {
+                log.warn("Archive segment {} has {} bytes of incomplete data after offset {}",
+                        path, size - position, position);
+                if (last) {
+                    channel.truncate(position);
+                }
+            }
+        }
+    }
+
+    private void openActive() throws IOException {
+        activeChannel = FileChannel.open(segmentPath(activeSegment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeSize = activeChannel.size();
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.matches("segment-\\d+\\.dat"))
+                    .map(name -> Integer.parseInt(name.substring("segment-".length(), name.length() - ".dat".length())))
+                    .sorted()
+                    .forEach(segments::add);
+        }
+        return segments;
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve("segment-%05d.dat".formatted(segment));
+    }
+
+    private byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, raw.length / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Location(int segment, long offset, int compressedLength, int rawLength) {
+    }
+}
@@ -0,0 +1,120 @@
+package hexlet.code.archive;
+
+import hexlet.code.check.PageExtractor;
+import hexlet.code.model.ArchivedCheck;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.util.Env;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Повторный разбор сохранённых тел страниц без обращения к сети: все проверки с body_hash
+// обходятся страницами по id, поля извлекаются заново тем же PageExtractor и обновляются пачкой.
+// Одновременно выполняется только один разбор.
+@Slf4j
+public final class Reextractor {
+
+    private static final int BATCH_SIZE = Env.getInt("REEXTRACT_BATCH_SIZE", 500);
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+    private static final LongAdder PROCESSED = new LongAdder();
+    private static final LongAdder MISSING = new LongAdder();
+    private static final LongAdder FAILED = new LongAdder();
+    private static volatile Instant startedAt;
+    private static volatile Instant finishedAt;
+    private static volatile long lastCheckId;
+
+    private Reextractor() {
+    }
+
+    // false, если разбор уже идёт
+    public static boolean start() {
+        if (!RUNNING.compareAndSet(false, true)) {
+            return false;
+        }
+        PROCESSED.reset();
+        MISSING.reset();
+        FAILED.reset();
+        lastCheckId = 0;
+        startedAt = Instant.now();
+        finishedAt = null;
+        Thread thread = new Thread(Reextractor::run, "reextractor");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    public static Map<String, Object> progress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("running", RUNNING.get());
+        progress.put("startedAt", startedAt == null ? null : startedAt.toString());
+        progress.put("finishedAt", finishedAt == null ? null : finishedAt.toString());
+        progress.put("processed", PROCESSED.sum());
+        progress.put("missingInArchive", MISSING.sum());
+        progress.put("failed", FAILED.sum());
+        progress.put("lastCheckId", lastCheckId);
+        return progress;
+    }
+
+    // Синхронный разбор всех архивных проверок; возвращает число обновлённых
+    public static long runNow() throws Exception {
+        PageArchive archive = PageArchive.getDefault();
+        long updated = 0;
+        long afterId = 0;
+        while (true) {
+            List<ArchivedCheck> batch = UrlCheckRepository.findArchived(afterId, BATCH_SIZE);
+            if (batch.isEmpty()) {
+                return updated;
+            }
+            // Разбор — чистая работа CPU, пачка делится между потоками общего пула
+            List<UrlCheck> checks = batch.parallelStream()
+                    .map(archived -> reextract(archive, archived))
+                    .filter(Objects::nonNull)
+                    .toList();
+            UrlCheckRepository.updateExtractedFields(checks);
+            updated += checks.size();
+            afterId = batch.get(batch.size() - 1).id();
+            lastCheckId = afterId;
+        }
+    }
+
+    private static void run() {
+        try {
+            long updated = runNow();
+            log.info("Re-extraction finished: {} checks updated, {} missing in archive, {} failed",
+                    updated, MISSING.sum(), FAILED.sum());
+        } catch (Exception e) {
+            log.error("Re-extraction aborted after check {}", lastCheckId, e);
+        } finally {
+            finishedAt = Instant.now();
+            RUNNING.set(false);
+        }
+    }
+
+    private static UrlCheck reextract(PageArchive archive, ArchivedCheck archived) {
+        try {
+            String body = archive.read(archived.bodyHash()).orElse(null);
+            if (body == null) {
+                MISSING.increment();
+                return null;
+            }
+            UrlCheck check = new UrlCheck(0, null, null, null, archived.urlId());
+            check.setId(archived.id());
+            PageExtractor.extract(Jsoup.parse(body, archived.url())).applyTo(check);
+            PROCESSED.increment();
+            return check;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to re-extract check {}", archived.id(), e);
+            FAILED.increment();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,518 @@
+package hexlet.code.check;
+
+import hexlet.code.archive.PageArchive;
+import hexlet.code.crawler.Crawler;
+import hexlet.code.events.CheckEventBus;
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.profiling.CheckStageEvent;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.tracing.Span;
+import hexlet.code.tracing.Trace;
+import hexlet.code.tracing.Tracer;
+import hexlet.code.util.Env;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Проверка сайта разбита на три стадии, связанные ограниченными очередями:
+// загрузка (много потоков, которые в основном ждут сеть) -> разбор Jsoup (потоков по числу CPU)
+// -> сохранение пачками одним потоком. Полная очередь блокирует предыдущую стадию,
+// поэтому при массовой перепроверке память не растёт, а разбор не занимает потоки загрузки.
+@Slf4j
+public final class CheckPipeline {
+
+    private static final int FETCH_WORKERS = Env.getInt("CHECK_FETCH_WORKERS", 64);
+    private static final int PARSE_WORKERS = Env.getInt("CHECK_PARSE_WORKERS",
+            Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_CAPACITY = Env.getInt("CHECK_QUEUE_CAPACITY", 1024);
+    private static final int PERSIST_BATCH = Env.getInt("CHECK_PERSIST_BATCH", 100);
+    private static final long PERSIST_LINGER_MS = Env.getLong("CHECK_PERSIST_LINGER_MS", 20);
+    private static final long FRESHNESS_MS = Env.getLong("CHECK_FRESHNESS_MS", 10_000);
+    private static final long DELETED_RETENTION_MS = Env.getLong("CHECK_DELETED_RETENTION_MS", 600_000);
+    // Потоки загрузки почти всё время ждут сокет, им хватает небольшого стека
+    private static final long FETCH_STACK_SIZE = 256 * 1024;
+    // Недоступный хост не занимает потоки загрузки на полный таймаут при каждой проверке
+    private static final HostCircuitBreaker BREAKER = new HostCircuitBreaker(
+            Env.getInt("CHECK_BREAKER_FAILURES", 5),
+            Env.getLong("CHECK_BREAKER_OPEN_MS", 30_000),
+            Env.getLong("CHECK_BREAKER_MAX_OPEN_MS", 600_000));
+
+    private static final BlockingQueue<Job> FETCH_QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final BlockingQueue<Job> PARSE_QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final BlockingQueue<Job> PERSIST_QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private static final StageMetrics FETCH = new StageMetrics("fetch", FETCH_QUEUE, FETCH_WORKERS);
+    private static final StageMetrics PARSE = new StageMetrics("parse", PARSE_QUEUE, PARSE_WORKERS);
+    private static final StageMetrics PERSIST = new StageMetrics("persist", PERSIST_QUEUE, 1);
+
+    // Ключ — адрес сайта: проверки в полёте и последний результат в пределах окна свежести
+    private static final Map<String, CompletableFuture<UrlCheck>> IN_FLIGHT = new ConcurrentHashMap<>();
+    private static final Map<String, UrlCheck> RECENT = new ConcurrentHashMap<>();
+    // Удалённые сайты -> момент удаления: их проверки, ещё идущие по конвейеру, не сохраняются
+    private static final Map<Long, Long> DELETED = new ConcurrentHashMap<>();
+    // Запись пачки и отметка удаления не пересекаются: иначе проверка, прошедшая фильтр до отметки,
+    // вставилась бы уже после удаления сайта
+    private static final Object PERSIST_LOCK = new Object();
+    private static final LongAdder STARTED = new LongAdder();
+    private static final LongAdder COALESCED = new LongAdder();
+    private static final LongAdder FRESH_HITS = new LongAdder();
+
+    // Страницы, ожидающие проверки ссылок, тоже ограничены: иначе при массовой перепроверке разбор
+    // обгонял бы сеть и копил задания в памяти
+    private static final Semaphore LINK_CHECK_SLOTS = new Semaphore(QUEUE_CAPACITY);
+    private static final ExecutorService LINK_HANDOFF = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "check-links");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        for (int i = 0; i < FETCH_WORKERS; i++) {
+            start(new Thread(null, () -> loop(FETCH_QUEUE, CheckPipeline::fetch), "check-fetch-" + i,
+                    FETCH_STACK_SIZE));
+        }
+        for (int i = 0; i < PARSE_WORKERS; i++) {
+            start(new Thread(() -> loop(PARSE_QUEUE, CheckPipeline::parse), "check-parse-" + i));
+        }
+        start(new Thread(CheckPipeline::persistLoop, "check-persist"));
+    }
+
+    private CheckPipeline() {
+    }
+
+    // Проверка по запросу пользователя: при переполненной очереди сразу отказ, а не ожидание
+    public static CompletableFuture<UrlCheck> submit(Url url) {
+        try {
+            return enqueue(url, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Массовая перепроверка: постановка в очередь блокируется, пока загрузка не освободит место
+    public static void submitAll(List<Url> urls) {
+        Thread feeder = new Thread(() -> {
+            try {
+                for (Url url : urls) {
+                    enqueue(url, true);
+                }
+                log.info("Mass re-check queued {} sites", urls.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "check-feeder");
+        start(feeder);
+    }
+
+    // Вызывается до удаления строк сайтов. После возврата ни одна проверка этих сайтов не будет записана:
+    // идущие по конвейеру завершаются CancellationException, уже записанные удалит вызывающий.
+    // Отметка живёт CHECK_DELETED_RETENTION_MS — дольше любой проверки в конвейере; id не переиспользуются,
+    // поэтому сайт, добавленный заново, её не видит. Удалённые сайты не должны получать и свежий
+    // результат из окна свежести
+    public static void forget(Collection<Long> urlIds) {
+        Set<Long> forgotten = new HashSet<>(urlIds);
+        synchronized (PERSIST_LOCK) {
+            long now = System.currentTimeMillis();
+            forgotten.forEach(urlId -> DELETED.put(urlId, now));
+        }
+        RECENT.values().removeIf(check -> forgotten.contains(check.getUrlId()));
+    }
+
+    public static Map<String, Object> metrics() {
+        Map<String, Object> singleFlight = new LinkedHashMap<>();
+        singleFlight.put("freshnessMs", FRESHNESS_MS);
+        singleFlight.put("inFlight", IN_FLIGHT.size());
+        singleFlight.put("recent", RECENT.size());
+        singleFlight.put("fetchesStarted", STARTED.sum());
+        singleFlight.put("coalesced", COALESCED.sum());
+        singleFlight.put("freshHits", FRESH_HITS.sum());
+        singleFlight.put("fetchesSaved", COALESCED.sum() + FRESH_HITS.sum());
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("stages", List.of(FETCH.snapshot(), PARSE.snapshot(), PERSIST.snapshot()));
+        metrics.put("singleFlight", singleFlight);
+        metrics.put("links", LinkChecker.stats());
+        return metrics;
+    }
+
+    public static Map<String, Object> breakers() {
+        return BREAKER.snapshot();
+    }
+
+    // Одна загрузка на сайт: параллельные проверки одного адреса получают общий результат,
+    // а результат моложе CHECK_FRESHNESS_MS отдаётся без новой загрузки и новой записи в url_checks
+    private static CompletableFuture<UrlCheck> enqueue(Url url, boolean block) throws InterruptedException {
+        String key = url.getName();
+        UrlCheck recent = RECENT.get(key);
+        if (recent != null) {
+            if (isFresh(recent, url)) {
+                FRESH_HITS.increment();
+                return CompletableFuture.completedFuture(recent);
+            }
+            RECENT.remove(key, recent);
+        }
+
+        Job job = new Job(url);
+        CompletableFuture<UrlCheck> inFlight = IN_FLIGHT.putIfAbsent(key, job.result);
+        if (inFlight != null) {
+            COALESCED.increment();
+            return inFlight;
+        }
+        STARTED.increment();
+        job.result.whenComplete((check, error) -> {
+            if (check != null && FRESHNESS_MS > 0) {
+                RECENT.put(key, check);
+            }
+            IN_FLIGHT.remove(key, job.result);
+        });
+
+        if (block) {
+            try {
+                FETCH_QUEUE.put(job);
+            } catch (InterruptedException e) {
+                job.result.completeExceptionally(e);
+                throw e;
+            }
+        } else if (!FETCH_QUEUE.offer(job)) {
+            job.result.completeExceptionally(new RejectedExecutionException("Check queue is full"));
+        }
+        return job.result;
+    }
+
+    // id сверяется, потому что сайт с тем же адресом мог быть удалён и добавлен заново
+    private static boolean isFresh(UrlCheck check, Url url) {
+        return check.getUrlId().equals(url.getId())
+                && System.currentTimeMillis() - check.getCreatedAt().getTime() < FRESHNESS_MS;
+    }
+
+    private static void fetch(Job job) throws InterruptedException {
+        long start = System.nanoTime();
+        Tracer.record(job.trace, "check.queue.fetch", job.queuedAt, start);
+        String host = hostOf(job.url.getName());
+        CheckStageEvent event = CheckStageEvent.start(CheckStageEvent.FETCH, job.url.getId());
+        if (!BREAKER.allow(host)) {
+            // Хост разомкнут: загрузки нет, проверка записывается как неудачная
+            Tracer.record(job.trace, "check.short-circuit", start, System.nanoTime());
+            event.finish(CheckStageEvent.FAILED);
+            saveFailure(job, new HostCircuitBreaker.OpenCircuitException(host));
+            return;
+        }
+        try (Span span = Tracer.span(job.trace, "check.fetch")) {
+            job.response = PageFetcher.fetch(job.url.getName());
+            BREAKER.onSuccess(host);
+            FETCH.record(1, start);
+            event.finish(job.response.statusCode());
+        } catch (Exception e) {
+            event.finish(CheckStageEvent.FAILED);
+            FETCH.recordFailure(1, start);
+            // Некорректный адрес ничего не говорит о доступности хоста и в историю проверок не попадает
+            if (e instanceof IOException && !(e instanceof MalformedURLException)) {
+                BREAKER.onFailure(host);
+                saveFailure(job, (IOException) e);
+            } else {
+                BREAKER.release(host);
+                job.result.completeExceptionally(e);
+            }
+            return;
+        }
+        job.queuedAt = System.nanoTime();
+        PARSE_QUEUE.put(job);
+    }
+
+    // Недоступный сайт остаётся в истории строкой без кода ответа и с текстом ошибки: статистика времени
+    // ответа и поиск неработающих сайтов отличают её от ответа сервера. Вызывающий после записи
+    // получает ту же ошибку, что и раньше
+    private static void saveFailure(Job job, IOException error) throws InterruptedException {
+        job.check = new UrlCheck(null, null, null, null, job.url.getId());
+        job.check.setError(error.getMessage() == null ? error.getClass().getSimpleName()
+                : error.getClass().getSimpleName() + ": " + error.getMessage());
+        job.failure = error;
+        job.queuedAt = System.nanoTime();
+        PERSIST_QUEUE.put(job);
+    }
+
+    // Адреса сайтов хранятся как "схема://хост[:порт]"; порт входит в ключ — это разные серверы
+    private static String hostOf(String address) {
+        try {
+            String authority = URI.create(address).getRawAuthority();
+            return authority == null ? address : authority;
+        } catch (IllegalArgumentException e) {
+            return address;
+        }
+    }
+
+    private static void parse(Job job) throws InterruptedException {
+        long start = System.nanoTime();
+        List<String> links;
+        Tracer.record(job.trace, "check.queue.parse", job.queuedAt, start);
+        CheckStageEvent event = CheckStageEvent.start(CheckStageEvent.PARSE, job.url.getId());
+        try (Span span = Tracer.span(job.trace, "check.parse")) {
+            FetchResult response = job.response;
+            Document document = Jsoup.parse(response.body(), job.url.getName());
+            PageFields fields = PageExtractor.extract(document);
+            links = LinkChecker.isEnabled() ? Crawler.extractLinks(document) : null;
+            if (Crawler.isEnabled()) {
+                Crawler.submit(job.url.getName(), document);
+            }
+
+            job.check = new UrlCheck(response.statusCode(), fields.title(), fields.h1(), fields.description(),
+                    job.url.getId());
+            job.check.setFields(fields.fields());
+            response.applyTo(job.check);
+            archive(job.check, response.body());
+            // Тело страницы дальше не нужно, не держим его в очереди сохранения
+            job.response = null;
+            PARSE.record(1, start);
+            event.finish(job.check.getStatusCode());
+        } catch (RuntimeException e) {
+            event.finish(CheckStageEvent.FAILED);
+            PARSE.recordFailure(1, start);
+            job.result.completeExceptionally(e);
+            return;
+        }
+        if (links != null) {
+            checkLinks(job, links);
+            return;
+        }
+        job.queuedAt = System.nanoTime();
+        PERSIST_QUEUE.put(job);
+    }
+
+    // Поток разбора не ждёт сеть: ссылки проверяются асинхронно, а проверка уходит на сохранение,
+    // когда они ответят или истечёт LINK_CHECK_PAGE_TIMEOUT_MS
+    private static void checkLinks(Job job, List<String> links) throws InterruptedException {
+        LINK_CHECK_SLOTS.acquire();
+        long start = System.nanoTime();
+        LinkChecker.check(links).whenCompleteAsync((report, error) -> {
+            try {
+                Tracer.record(job.trace, "check.links", start, System.nanoTime());
+                if (report != null) {
+                    report.applyTo(job.check);
+                } else {
+                    log.warn("Link check of {} failed", job.url.getName(), error);
+                }
+                job.queuedAt = System.nanoTime();
+                PERSIST_QUEUE.put(job);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.result.completeExceptionally(e);
+            } finally {
+                LINK_CHECK_SLOTS.release();
+            }
+        }, LINK_HANDOFF);
+    }
+
+    // Тело страницы сохраняется в архив до того, как будет отброшено; ошибка архива не срывает проверку
+    private static void archive(UrlCheck check, String body) {
+        if (!PageArchive.isEnabled() || body == null) {
+            return;
+        }
+        try {
+            check.setBodyHash(PageArchive.getDefault().store(body));
+        } catch (IOException e) {
+            log.warn("Failed to archive the body of {}", check.getFinalUrl(), e);
+        }
+    }
+
+    // Собирает пачку: ждёт первую проверку, затем до PERSIST_LINGER_MS добирает остальные
+    private static void persistLoop() {
+        List<Job> batch = new ArrayList<>(PERSIST_BATCH);
+        long lastSweep = System.currentTimeMillis();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(PERSIST_QUEUE.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PERSIST_LINGER_MS);
+                while (batch.size() < PERSIST_BATCH) {
+                    PERSIST_QUEUE.drainTo(batch, PERSIST_BATCH - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= PERSIST_BATCH || remaining <= 0) {
+                        break;
+                    }
+                    Job next = PERSIST_QUEUE.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                persist(batch);
+                long now = System.currentTimeMillis();
+                if (now - lastSweep >= FRESHNESS_MS) {
+                    lastSweep = now;
+                    sweep(now);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Результат попадает в RECENT только после записи, поэтому чистки из цикла записи хватает: без новых
+    // проверок таблица не растёт. Поиск по ключу сам удаляет лишь устаревшие записи тех сайтов,
+    // которые проверяют снова, остальные копились бы до перезапуска
+    private static void sweep(long now) {
+        RECENT.values().removeIf(check -> now - check.getCreatedAt().getTime() >= FRESHNESS_MS);
+        DELETED.values().removeIf(deletedAt -> now - deletedAt >= DELETED_RETENTION_MS);
+    }
+
+    private static void persist(List<Job> batch) {
+        synchronized (PERSIST_LOCK) {
+            List<Job> live = new ArrayList<>(batch.size());
+            for (Job job : batch) {
+                if (DELETED.containsKey(job.url.getId())) {
+                    job.result.completeExceptionally(
+                            new CancellationException("Url " + job.url.getId() + " was deleted during the check"));
+                } else {
+                    live.add(job);
+                }
+            }
+            if (!live.isEmpty()) {
+                save(live);
+            }
+        }
+    }
+
+    private static void save(List<Job> batch) {
+        long start = System.nanoTime();
+        List<UrlCheck> checks = new ArrayList<>(batch.size());
+        // События JFR на каждую проверку пачки создаются только во время записи
+        boolean recording = CheckStageEvent.isRecording();
+        List<CheckStageEvent> events = recording ? new ArrayList<>(batch.size()) : List.of();
+        for (Job job : batch) {
+            checks.add(job.check);
+            if (recording) {
+                events.add(CheckStageEvent.start(CheckStageEvent.SAVE, job.url.getId()).batchOf(batch.size()));
+            }
+        }
+        try {
+            UrlCheckRepository.saveAll(checks);
+        } catch (Exception e) {
+            if (batch.size() > 1) {
+                // Одна плохая строка не должна валить остальные проверки пачки: пишем их по одной
+                log.warn("Failed to save a batch of {} checks, saving them one by one", batch.size(), e);
+                saveOneByOne(batch, events, start);
+                return;
+            }
+            events.forEach(event -> event.finish(CheckStageEvent.FAILED));
+            log.error("Failed to save a check of url {}", batch.get(0).url.getId(), e);
+            PERSIST.recordFailure(batch.size(), start);
+            batch.forEach(job -> job.result.completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < events.size(); i++) {
+            events.get(i).finish(checks.get(i).getStatusCode());
+        }
+        PERSIST.record(batch.size(), start);
+        long end = System.nanoTime();
+        for (Job job : batch) {
+            complete(job, start, end);
+        }
+    }
+
+    private static void saveOneByOne(List<Job> batch, List<CheckStageEvent> events, long start) {
+        List<Job> saved = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Job job = batch.get(i);
+            // id мог быть присвоен пачкой до отката
+            job.check.setId(null);
+            try {
+                UrlCheckRepository.save(job.check);
+                saved.add(job);
+                if (!events.isEmpty()) {
+                    events.get(i).finish(job.check.getStatusCode());
+                }
+            } catch (Exception e) {
+                if (!events.isEmpty()) {
+                    events.get(i).finish(CheckStageEvent.FAILED);
+                }
+                log.error("Failed to save a check of url {}", job.url.getId(), e);
+                job.result.completeExceptionally(e);
+            }
+        }
+        PERSIST.record(saved.size(), start);
+        if (saved.size() < batch.size()) {
+            // Время стадии уже учтено выше
+            PERSIST.recordFailure(batch.size() - saved.size(), System.nanoTime());
+        }
+        long end = System.nanoTime();
+        for (Job job : saved) {
+            complete(job, start, end);
+        }
+    }
+
+    private static void complete(Job job, long start, long end) {
+        Tracer.record(job.trace, "check.queue.persist", job.queuedAt, start);
+        Tracer.record(job.trace, "check.persist", start, end);
+        CheckEventBus.publish(job.check);
+        if (job.failure != null) {
+            job.result.completeExceptionally(job.failure);
+        } else {
+            job.result.complete(job.check);
+        }
+    }
+
+    private static void loop(BlockingQueue<Job> queue, Stage stage) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                stage.process(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Check pipeline worker failed", e);
+            }
+        }
+    }
+
+    private static void start(Thread thread) {
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void process(Job job) throws InterruptedException;
+    }
+
+    // Состояние одной проверки по мере прохождения стадий; поля пишет только текущая стадия
+    private static final class Job {
+        private final Url url;
+        private final CompletableFuture<UrlCheck> result = new CompletableFuture<>();
+        // Трасса запроса, поставившего проверку; у массовой перепроверки её нет
+        private final Trace trace = Tracer.current();
+        // Момент постановки в очередь текущей стадии, для участка ожидания в трассе
+        private long queuedAt = System.nanoTime();
+        private FetchResult response;
+        private UrlCheck check;
+        // Ошибка загрузки, записанной как неудачная проверка
+        private IOException failure;
+
+        Job(Url url) {
+            this.url = url;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package hexlet.code.check;
+
+import hexlet.code.util.Env;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Правила извлечения полей страницы, заданные парами "поле = селектор" в extraction-rules.properties
+// (или в файле EXTRACTION_RULES_PATH). Селектор — подмножество CSS: [head ]tag[[attr]|[attr=value]][@attr[?]];
+// @attr берёт значение атрибута (элемент без него не подходит), @attr? — атрибут первого подходящего
+// элемента или "", если атрибута у него нет; без @ берётся текст элемента.
+// Правила компилируются один раз в индекс по имени тега и по значению атрибута, и все поля
+// извлекаются за один обход документа: на каждый элемент — поиск в хеш-таблицах, а не проверка
+// каждого правила. Обход останавливается, как только найдены все поля. Как и selectFirst,
+// правило берёт первый подходящий элемент в порядке документа.
+@Slf4j
+public final class ExtractionRules {
+
+    public static final String TITLE = "title";
+    public static final String H1 = "h1";
+    public static final String DESCRIPTION = "description";
+
+    private static final Pattern SELECTOR = Pattern.compile(
+            "^(head\\s+)?([a-z][a-z0-9-]*)(?:\\[([\\w:-]+)(?:=\"?([^\"\\]]*)\"?)?])?(?:@([\\w:-]+)(\\?)?)?$");
+    // Поля колонок url_checks: те же правила, что у document.title(), selectFirst("h1")
+    // и selectFirst("meta[name=description]").attr("content"): meta без content даёт "", а не следующий тег
+    private static final List<Map.Entry<String, String>> BUILT_IN = List.of(
+            Map.entry(TITLE, "head title"),
+            Map.entry(H1, "h1"),
+            Map.entry(DESCRIPTION, "meta[name=description]@content?"));
+
+    private static ExtractionRules defaultRules;
+
+    private final List<Rule> rules;
+    private final Map<String, TagRules> byTag = new HashMap<>();
+
+    private ExtractionRules(List<Rule> rules) {
+        this.rules = rules;
+        for (Rule rule : rules) {
+            TagRules tagRules = byTag.computeIfAbsent(rule.tag(), tag -> new TagRules());
+            if (rule.value() == null) {
+                tagRules.anyValue.add(rule);
+            } else {
+                tagRules.byAttributeValue
+                        .computeIfAbsent(rule.attribute(), attribute -> new HashMap<>())
+                        .computeIfAbsent(rule.value(), value -> new ArrayList<>())
+                        .add(rule);
+            }
+        }
+    }
+
+    // Правила приложения: загружаются при первом обращении, ошибка в файле — ошибка старта проверок
+    public static synchronized ExtractionRules getDefault() {
+        if (defaultRules == null) {
+            try {
+                defaultRules = load();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            log.info("Extraction rules: {}", defaultRules.fieldNames());
+        }
+        return defaultRules;
+    }
+
+    // Поля из properties; title, h1 и description заданы всегда и переопределению не подлежат
+    public static ExtractionRules compile(Properties properties) {
+        List<Rule> rules = new ArrayList<>();
+        for (Map.Entry<String, String> builtIn : BUILT_IN) {
+            rules.add(parse(rules.size(), builtIn.getKey(), builtIn.getValue()));
+        }
+        Map<String, String> sorted = new TreeMap<>();
+        properties.stringPropertyNames().forEach(name -> sorted.put(name.trim(), properties.getProperty(name)));
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            if (TITLE.equals(entry.getKey()) || H1.equals(entry.getKey()) || DESCRIPTION.equals(entry.getKey())) {
+                throw new IllegalArgumentException("Field " + entry.getKey() + " is built in and cannot be redefined");
+            }
+            rules.add(parse(rules.size(), entry.getKey(), entry.getValue()));
+        }
+        return new ExtractionRules(List.copyOf(rules));
+    }
+
+    public List<String> fieldNames() {
+        return rules.stream().map(Rule::field).toList();
+    }
+
+    public PageFields extract(Document document) {
+        Pass pass = new Pass(rules.size());
+        NodeTraversor.filter(pass, document);
+        String[] values = pass.values;
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = BUILT_IN.size(); i < rules.size(); i++) {
+            if (values[i] != null) {
+                fields.put(rules.get(i).field(), values[i]);
+            }
+        }
+        return new PageFields(orEmpty(values[0]), orEmpty(values[1]), orEmpty(values[2]),
+                Collections.unmodifiableMap(fields));
+    }
+
+    private static ExtractionRules load() throws IOException {
+        Properties properties = new Properties();
+        String path = Env.get("EXTRACTION_RULES_PATH", "");
+        if (!path.isBlank()) {
+            try (InputStream inputStream = Files.newInputStream(Path.of(path))) {
+                properties.load(inputStream);
+            }
+        } else {
+            try (InputStream inputStream = ExtractionRules.class.getClassLoader()
+                    .getResourceAsStream("extraction-rules.properties")) {
+                if (inputStream != null) {
+                    properties.load(inputStream);
+                }
+            }
+        }
+        return compile(properties);
+    }
+
+    private static Rule parse(int index, String field, String selector) {
+        Matcher matcher = SELECTOR.matcher(selector.trim().toLowerCase(Locale.ROOT));
+        if (field.isEmpty() || !matcher.matches()) {
+            throw new IllegalArgumentException("Invalid extraction rule " + field + " = " + selector);
+        }
+        String attribute = matcher.group(3);
+        String value = matcher.group(4);
+        return new Rule(index, field, matcher.group(1) != null, matcher.group(2), attribute,
+                value == null ? null : value.trim(), matcher.group(5), matcher.group(6) != null);
+    }
+
+    // Как document.title(): текст <title> не нормализуется jsoup, пробелы и переводы строк схлопываются здесь
+    private static String normalizeWhitespace(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || c == '\u00A0') {
+                space = result.length() > 0;
+            } else {
+                if (space) {
+                    result.append(' ');
+                    space = false;
+                }
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static String orEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    // attribute/value — условие на элемент, extract — атрибут-результат (null — текст элемента),
+    // optional — элемент подходит и без атрибута-результата
+    private record Rule(int index, String field, boolean headOnly, String tag, String attribute, String value,
+                        String extract, boolean optional) {
+
+        boolean matches(Element element, boolean inHead) {
+            return (!headOnly || inHead)
+                    && (attribute == null || element.hasAttr(attribute))
+                    && (extract == null || optional || element.hasAttr(extract));
+        }
+
+        String valueOf(Element element) {
+            return extract == null ? normalizeWhitespace(element.text()) : element.attr(extract);
+        }
+    }
+
+    private static final class TagRules {
+        private final List<Rule> anyValue = new ArrayList<>();
+        private final Map<String, Map<String, List<Rule>>> byAttributeValue = new HashMap<>();
+    }
+
+    private final class Pass implements NodeFilter {
+        private final String[] values;
+        private int remaining;
+        private boolean inHead;
+
+        Pass(int size) {
+            values = new String[size];
+            remaining = size;
+        }
+
+        @Override
+        public FilterResult head(Node node, int depth) {
+            if (!(node instanceof Element element)) {
+                return FilterResult.CONTINUE;
+            }
+            String tag = element.normalName();
+            if ("head".equals(tag)) {
+                inHead = true;
+            }
+            TagRules tagRules = byTag.get(tag);
+            if (tagRules != null) {
+                match(tagRules.anyValue, element);
+                for (Map.Entry<String, Map<String, List<Rule>>> entry : tagRules.byAttributeValue.entrySet()) {
+                    // Значение сравнивается без учёта регистра и пробелов по краям, как [attr=value] в jsoup
+                    String value = element.attr(entry.getKey()).trim().toLowerCase(Locale.ROOT);
+                    List<Rule> candidates = entry.getValue().get(value);
+                    if (candidates != null) {
+                        match(candidates, element);
+                    }
+                }
+            }
+            return remaining == 0 ? FilterResult.STOP : FilterResult.CONTINUE;
+        }
+
+        @Override
+        public FilterResult tail(Node node, int depth) {
+            if (node instanceof Element element && "head".equals(element.normalName())) {
+                inHead = false;
+            }
+            return FilterResult.CONTINUE;
+        }
+
+        private void match(List<Rule> candidates, Element element) {
+            for (Rule rule : candidates) {
+                if (values[rule.index()] == null && rule.matches(element, inHead)) {
+                    values[rule.index()] = rule.valueOf(element);
+                    remaining--;
+                }
+            }
+        }
+    }
+}
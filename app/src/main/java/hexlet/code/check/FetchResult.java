@@ -0,0 +1,26 @@
+package hexlet.code.check;
+
+import hexlet.code.model.UrlCheck;
+
+public record FetchResult(
+        int statusCode,
+        String body,
+        String contentType,
+        long connectTimeMs,
+        long ttfbMs,
+        long totalTimeMs,
+        long bodyBytes,
+        long transferBytes,
+        int redirectCount,
+        String finalUrl) {
+
+    public void applyTo(UrlCheck urlCheck) {
+        urlCheck.setConnectTimeMs(connectTimeMs);
+        urlCheck.setTtfbMs(ttfbMs);
+        urlCheck.setTotalTimeMs(totalTimeMs);
+        urlCheck.setBodyBytes(bodyBytes);
+        urlCheck.setTransferBytes(transferBytes);
+        urlCheck.setRedirectCount(redirectCount);
+        urlCheck.setFinalUrl(finalUrl);
+    }
+}
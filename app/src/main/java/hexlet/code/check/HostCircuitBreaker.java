@@ -0,0 +1,173 @@
+package hexlet.code.check;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Размыкатель по хосту для загрузки страниц. После failureThreshold сетевых ошибок подряд хост
+// размыкается: загрузки к нему не идут, проверка сразу завершается OpenCircuitException и в историю
+// не пишется — иначе пустые строки тянули бы к нулю статистику времени ответа. Через openMillis
+// пропускается одна пробная загрузка (HALF_OPEN): успех замыкает цепь, ошибка размыкает её снова
+// на вдвое больший срок, но не дольше maxOpenMillis. Здоровые хосты в таблице не хранятся:
+// запись появляется с первой ошибкой и удаляется первым же ответом сервера.
+@Slf4j
+public final class HostCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final long maxOpenNanos;
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+
+    public HostCircuitBreaker(int failureThreshold, long openMillis, long maxOpenMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.maxOpenNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(openMillis, maxOpenMillis));
+    }
+
+    // false — хост разомкнут, загружать не нужно. true для разомкнутого хоста — вызывающий стал
+    // пробной загрузкой и обязан сообщить её исход через onSuccess, onFailure или release
+    public boolean allow(String host) {
+        Circuit circuit = circuits.get(host);
+        if (circuit == null || failureThreshold <= 0) {
+            return true;
+        }
+        synchronized (circuit) {
+            if (circuit.state == State.CLOSED) {
+                return true;
+            }
+            if (circuit.state == State.OPEN && System.nanoTime() - circuit.openedAt >= circuit.openFor) {
+                circuit.state = State.HALF_OPEN;
+                return true;
+            }
+        }
+        shortCircuited.increment();
+        return false;
+    }
+
+    // Сервер ответил (с любым кодом) — хост жив
+    public void onSuccess(String host) {
+        Circuit circuit = circuits.get(host);
+        if (circuit == null) {
+            return;
+        }
+        synchronized (circuit) {
+            if (circuit.state != State.CLOSED) {
+                log.info("Circuit for {} closed after {} failures", host, circuit.failures);
+            }
+            circuits.remove(host, circuit);
+        }
+    }
+
+    public void onFailure(String host) {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        Circuit circuit = circuits.computeIfAbsent(host, key -> new Circuit());
+        synchronized (circuit) {
+            circuit.failures++;
+            if (circuit.state == State.CLOSED && circuit.failures >= failureThreshold) {
+                open(host, circuit, openNanos);
+            } else if (circuit.state == State.HALF_OPEN) {
+                open(host, circuit, Math.min(circuit.openFor * 2, maxOpenNanos));
+            }
+            // OPEN: ошибка загрузки, начатой до размыкания, срок не продлевает
+        }
+    }
+
+    // Пробная загрузка не дошла до сети (например, некорректный адрес): следующий вызов allow
+    // снова станет пробой
+    public void release(String host) {
+        Circuit circuit = circuits.get(host);
+        if (circuit == null) {
+            return;
+        }
+        synchronized (circuit) {
+            if (circuit.state == State.HALF_OPEN) {
+                circuit.state = State.OPEN;
+                circuit.openedAt = System.nanoTime() - circuit.openFor;
+            }
+        }
+    }
+
+    public State state(String host) {
+        Circuit circuit = circuits.get(host);
+        if (circuit == null) {
+            return State.CLOSED;
+        }
+        synchronized (circuit) {
+            return circuit.state;
+        }
+    }
+
+    // Хосты с ошибками (замкнутые — ещё не набравшие порога) и общие счётчики
+    public Map<String, Object> snapshot() {
+        long now = System.nanoTime();
+        int open = 0;
+        int halfOpen = 0;
+        List<Map<String, Object>> hosts = new ArrayList<>();
+        for (Map.Entry<String, Circuit> entry : new TreeMap<>(circuits).entrySet()) {
+            Circuit circuit = entry.getValue();
+            Map<String, Object> host = new LinkedHashMap<>();
+            synchronized (circuit) {
+                host.put("host", entry.getKey());
+                host.put("state", circuit.state.name());
+                host.put("consecutiveFailures", circuit.failures);
+                if (circuit.state == State.OPEN) {
+                    open++;
+                    host.put("openForMs", TimeUnit.NANOSECONDS.toMillis(circuit.openFor));
+                    host.put("probeInMs", Math.max(0,
+                            TimeUnit.NANOSECONDS.toMillis(circuit.openedAt + circuit.openFor - now)));
+                } else if (circuit.state == State.HALF_OPEN) {
+                    halfOpen++;
+                }
+            }
+            hosts.add(host);
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("failureThreshold", failureThreshold);
+        snapshot.put("openMs", TimeUnit.NANOSECONDS.toMillis(openNanos));
+        snapshot.put("maxOpenMs", TimeUnit.NANOSECONDS.toMillis(maxOpenNanos));
+        snapshot.put("open", open);
+        snapshot.put("halfOpen", halfOpen);
+        snapshot.put("opened", opened.sum());
+        snapshot.put("shortCircuited", shortCircuited.sum());
+        snapshot.put("hosts", hosts);
+        return snapshot;
+    }
+
+    private void open(String host, Circuit circuit, long openFor) {
+        circuit.state = State.OPEN;
+        circuit.openedAt = System.nanoTime();
+        circuit.openFor = openFor;
+        opened.increment();
+        log.warn("Circuit for {} opened for {} ms after {} consecutive failures",
+                host, TimeUnit.NANOSECONDS.toMillis(openFor), circuit.failures);
+    }
+
+    // Проверка не выполнялась: хост разомкнут после серии ошибок
+    public static final class OpenCircuitException extends IOException {
+        public OpenCircuitException(String host) {
+            super("Fetches to " + host + " are suspended after repeated failures");
+        }
+    }
+
+    // Поля меняются под монитором самой записи
+    private static final class Circuit {
+        private State state = State.CLOSED;
+        private int failures;
+        private long openedAt;
+        private long openFor;
+    }
+}
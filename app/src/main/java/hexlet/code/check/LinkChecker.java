@@ -0,0 +1,268 @@
+package hexlet.code.check;
+
+import hexlet.code.util.Env;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Проверка исходящих ссылок страницы асинхронными HEAD-запросами (GET, если сервер не поддерживает HEAD).
+// Запросы не занимают потоки: диспетчер запускает не больше LINK_CHECK_CONCURRENCY запросов всего
+// и не больше LINK_CHECK_HOST_CONCURRENCY к одному хосту, остальные ждут в очереди своего хоста.
+// Результаты общие для всех сайтов и живут LINK_CHECK_CACHE_TTL_S: одна и та же ссылка
+// проверяется один раз за окно, одновременные запросы к ней получают один результат.
+// Кешируются только ответы сервера: таймаут или обрыв соединения отдаётся тем, кто ждал этот запрос,
+// и сразу выбрасывается из кеша, чтобы временный сбой не держал ссылку битой всё окно.
+@Slf4j
+public final class LinkChecker {
+
+    private static final boolean ENABLED = Env.getBoolean("LINK_CHECK_ENABLED", false);
+    private static final int CONCURRENCY = Env.getInt("LINK_CHECK_CONCURRENCY", 32);
+    private static final int HOST_CONCURRENCY = Env.getInt("LINK_CHECK_HOST_CONCURRENCY", 2);
+    private static final int MAX_LINKS = Env.getInt("LINK_CHECK_MAX_LINKS", 200);
+    private static final long TIMEOUT_MS = Env.getLong("LINK_CHECK_TIMEOUT_MS", 5_000);
+    private static final long PAGE_TIMEOUT_MS = Env.getLong("LINK_CHECK_PAGE_TIMEOUT_MS", 10_000);
+    private static final long CACHE_TTL_MS = TimeUnit.SECONDS.toMillis(Env.getLong("LINK_CHECK_CACHE_TTL_S", 600));
+    private static final int CACHE_SIZE = Env.getInt("LINK_CHECK_CACHE_SIZE", 100_000);
+    // Код для ссылки, до которой не удалось достучаться
+    static final int UNREACHABLE = 0;
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(TIMEOUT_MS))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private static final Map<String, CachedStatus> CACHE = new ConcurrentHashMap<>();
+    private static final LongAdder CACHE_HITS = new LongAdder();
+    private static final LongAdder REQUESTS = new LongAdder();
+    private static final LongAdder GET_FALLBACKS = new LongAdder();
+
+    // Состояние диспетчера меняется только под LOCK
+    private static final Object LOCK = new Object();
+    private static final Map<String, Host> HOSTS = new HashMap<>();
+    private static final Queue<Host> READY = new ArrayDeque<>();
+    private static int active;
+    private static int pending;
+
+    private LinkChecker() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // Не дольше LINK_CHECK_PAGE_TIMEOUT_MS: ссылки, не успевшие ответить, не считаются ни целыми, ни битыми
+    public static CompletableFuture<LinkReport> check(List<String> links) {
+        List<String> unique = new ArrayList<>(new LinkedHashSet<>(links));
+        if (unique.size() > MAX_LINKS) {
+            unique = unique.subList(0, MAX_LINKS);
+        }
+        List<String> targets = unique;
+        List<CompletableFuture<Integer>> statuses = new ArrayList<>(targets.size());
+        for (String link : targets) {
+            statuses.add(status(link));
+        }
+        return CompletableFuture.allOf(statuses.toArray(CompletableFuture[]::new))
+                .completeOnTimeout(null, PAGE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .thenApply(ignored -> {
+                    int checked = 0;
+                    List<String> broken = new ArrayList<>();
+                    for (int i = 0; i < targets.size(); i++) {
+                        Integer status = statuses.get(i).getNow(null);
+                        if (status == null) {
+                            continue;
+                        }
+                        checked++;
+                        if (isBroken(status)) {
+                            broken.add(targets.get(i));
+                        }
+                    }
+                    return new LinkReport(checked, broken);
+                });
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", ENABLED);
+        synchronized (LOCK) {
+            stats.put("active", active);
+            stats.put("pending", pending);
+            stats.put("hosts", HOSTS.size());
+        }
+        stats.put("cached", CACHE.size());
+        stats.put("cacheHits", CACHE_HITS.sum());
+        stats.put("requests", REQUESTS.sum());
+        stats.put("getFallbacks", GET_FALLBACKS.sum());
+        return stats;
+    }
+
+    static boolean isBroken(int status) {
+        return status == UNREACHABLE || status >= 400;
+    }
+
+    static void clearCache() {
+        CACHE.clear();
+    }
+
+    private static CompletableFuture<Integer> status(String link) {
+        long now = System.currentTimeMillis();
+        CachedStatus cached = CACHE.get(link);
+        if (cached != null && cached.expiresAt() > now) {
+            CACHE_HITS.increment();
+            return cached.status();
+        }
+        CachedStatus candidate = new CachedStatus(new CompletableFuture<>(), now + CACHE_TTL_MS);
+        CachedStatus entry = CACHE.compute(link,
+                (key, current) -> current != null && current.expiresAt() > now ? current : candidate);
+        if (entry != candidate) {
+            CACHE_HITS.increment();
+            return entry.status();
+        }
+        if (CACHE.size() > CACHE_SIZE) {
+            evictExpired(now);
+        }
+        enqueue(new Probe(link, hostOf(link), candidate.status()));
+        return candidate.status();
+    }
+
+    // Сначала выбрасываются устаревшие результаты; если кеш всё ещё полон — произвольная часть остальных
+    private static void evictExpired(long now) {
+        CACHE.values().removeIf(entry -> entry.expiresAt() <= now && entry.status().isDone());
+        Iterator<CachedStatus> iterator = CACHE.values().iterator();
+        while (CACHE.size() > CACHE_SIZE * 9 / 10 && iterator.hasNext()) {
+            if (iterator.next().status().isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static void enqueue(Probe probe) {
+        List<Probe> started = new ArrayList<>();
+        synchronized (LOCK) {
+            Host host = HOSTS.computeIfAbsent(probe.host(), Host::new);
+            host.waiting.add(probe);
+            pending++;
+            markReady(host);
+            dispatch(started);
+        }
+        started.forEach(LinkChecker::send);
+    }
+
+    private static void finish(Probe probe) {
+        List<Probe> started = new ArrayList<>();
+        synchronized (LOCK) {
+            active--;
+            Host host = HOSTS.get(probe.host());
+            host.active--;
+            if (host.active == 0 && host.waiting.isEmpty()) {
+                HOSTS.remove(host.name);
+            } else {
+                markReady(host);
+            }
+            dispatch(started);
+        }
+        started.forEach(LinkChecker::send);
+    }
+
+    // Хосты с ожидающими ссылками обслуживаются по кругу, чтобы страница с сотней ссылок
+    // на один сайт не задерживала проверку остальных
+    private static void dispatch(List<Probe> started) {
+        while (active < CONCURRENCY && !READY.isEmpty()) {
+            Host host = READY.poll();
+            host.ready = false;
+            started.add(host.waiting.poll());
+            pending--;
+            active++;
+            host.active++;
+            markReady(host);
+        }
+    }
+
+    private static void markReady(Host host) {
+        if (!host.ready && !host.waiting.isEmpty() && host.active < HOST_CONCURRENCY) {
+            host.ready = true;
+            READY.add(host);
+        }
+    }
+
+    private static void send(Probe probe) {
+        REQUESTS.increment();
+        request(probe.link(), "HEAD")
+                .thenCompose(status -> {
+                    // Часть серверов не поддерживает HEAD или отвечает на него иначе, чем на GET
+                    if (status == 405 || status == 501 || status == 403) {
+                        GET_FALLBACKS.increment();
+                        return request(probe.link(), "GET");
+                    }
+                    return CompletableFuture.completedFuture(status);
+                })
+                .whenComplete((status, error) -> {
+                    finish(probe);
+                    if (error != null || status == UNREACHABLE) {
+                        CACHE.computeIfPresent(probe.link(),
+                                (key, current) -> current.status() == probe.result() ? null : current);
+                    }
+                    probe.result().complete(error == null ? status : UNREACHABLE);
+                });
+    }
+
+    private static CompletableFuture<Integer> request(String link, String method) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(link))
+                    .method(method, HttpRequest.BodyPublishers.noBody())
+                    .timeout(Duration.ofMillis(TIMEOUT_MS))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(UNREACHABLE);
+        }
+        return CLIENT.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::statusCode)
+                .exceptionally(error -> {
+                    log.debug("Link {} is unreachable: {}", link, error.toString());
+                    return UNREACHABLE;
+                });
+    }
+
+    private static String hostOf(String link) {
+        try {
+            String host = URI.create(link).getHost();
+            return host == null ? "" : host;
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    private record CachedStatus(CompletableFuture<Integer> status, long expiresAt) {
+    }
+
+    private record Probe(String link, String host, CompletableFuture<Integer> result) {
+    }
+
+    private static final class Host {
+        private final String name;
+        private final Queue<Probe> waiting = new ArrayDeque<>();
+        private int active;
+        private boolean ready;
+
+        Host(String name) {
+            this.name = name;
+        }
+    }
+}
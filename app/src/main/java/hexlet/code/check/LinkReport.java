@@ -0,0 +1,14 @@
+package hexlet.code.check;
+
+import hexlet.code.model.UrlCheck;
+
+import java.util.List;
+
+// Итог проверки ссылок страницы: сколько ссылок успело ответить и какие из них битые
+public record LinkReport(int checked, List<String> broken) {
+
+    public void applyTo(UrlCheck urlCheck) {
+        urlCheck.setBrokenLinksCount(broken.size());
+        urlCheck.setBrokenLinks(String.join("\n", broken));
+    }
+}
@@ -0,0 +1,14 @@
+package hexlet.code.check;
+
+import org.jsoup.nodes.Document;
+
+// Извлечение полей страницы; общее для новой проверки и повторного разбора архивных тел
+public final class PageExtractor {
+
+    private PageExtractor() {
+    }
+
+    public static PageFields extract(Document document) {
+        return ExtractionRules.getDefault().extract(document);
+    }
+}
@@ -0,0 +1,172 @@
+package hexlet.code.check;
+
+import hexlet.code.util.Env;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+// Загрузка страницы с замером фаз: соединение (DNS + TCP + TLS), время до первого байта и полное время,
+// размер тела до и после распаковки, число редиректов и итоговый адрес.
+// Редиректы обходятся вручную, чтобы их посчитать.
+public final class PageFetcher {
+
+    private static final int CONNECT_TIMEOUT_MS = Env.getInt("CHECK_CONNECT_TIMEOUT_MS", 10_000);
+    private static final int READ_TIMEOUT_MS = Env.getInt("CHECK_READ_TIMEOUT_MS", 30_000);
+    private static final int MAX_REDIRECTS = Env.getInt("CHECK_MAX_REDIRECTS", 10);
+
+    private PageFetcher() {
+    }
+
+    public static FetchResult fetch(String address) throws IOException {
+        long start = System.nanoTime();
+        long connectNanos = 0;
+        int redirectCount = 0;
+        URL current = toUrl(address);
+
+        while (true) {
+            HttpURLConnection connection = (HttpURLConnection) current.openConnection();
+            try {
+                connection.setInstanceFollowRedirects(false);
+                connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+                connection.setReadTimeout(READ_TIMEOUT_MS);
+                connection.setRequestProperty("Accept-Encoding", "gzip");
+
+                long connectStart = System.nanoTime();
+                connection.connect();
+                connectNanos += System.nanoTime() - connectStart;
+
+                int statusCode = connection.getResponseCode();
+                long ttfbNanos = System.nanoTime() - start;
+                String location = connection.getHeaderField("Location");
+
+                if (isRedirect(statusCode) && location != null && redirectCount < MAX_REDIRECTS) {
+                    discard(connection, statusCode);
+                    current = resolve(current, location);
+                    redirectCount++;
+                    continue;
+                }
+
+                InputStream rawStream = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+                CountingInputStream counted = new CountingInputStream(rawStream);
+                byte[] bytes;
+                try (InputStream bodyStream = "gzip".equalsIgnoreCase(connection.getContentEncoding())
+                        ? new GZIPInputStream(counted)
+                        : counted) {
+                    bytes = bodyStream.readAllBytes();
+                }
+                String contentType = connection.getContentType();
+                String body = new String(bytes, charsetOf(contentType));
+
+                return new FetchResult(
+                        statusCode,
+                        body,
+                        contentType,
+                        TimeUnit.NANOSECONDS.toMillis(connectNanos),
+                        TimeUnit.NANOSECONDS.toMillis(ttfbNanos),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                        bytes.length,
+                        counted.count,
+                        redirectCount,
+                        current.toString());
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+
+    // Location может быть относительным. У адреса без пути URI.resolve склеил бы хост с относительной
+    // ссылкой, поэтому путь сначала приводится к "/"
+    private static URL resolve(URL base, String location) throws MalformedURLException {
+        try {
+            URI baseUri = base.toURI();
+            if (baseUri.getRawPath() == null || baseUri.getRawPath().isEmpty()) {
+                baseUri = baseUri.resolve("/");
+            }
+            return toUrl(baseUri.resolve(location.trim()).toString());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new MalformedURLException(e.getMessage());
+        }
+    }
+
+    private static URL toUrl(String address) throws MalformedURLException {
+        try {
+            URL url = new URI(address).toURL();
+            String protocol = url.getProtocol();
+            if (!"http".equals(protocol) && !"https".equals(protocol)) {
+                throw new MalformedURLException("Unsupported protocol: " + protocol);
+            }
+            return url;
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new MalformedURLException(e.getMessage());
+        }
+    }
+
+    private static boolean isRedirect(int statusCode) {
+        return statusCode == 301 || statusCode == 302 || statusCode == 303
+                || statusCode == 307 || statusCode == 308;
+    }
+
+    // Дочитываем тело редиректа, чтобы соединение вернулось в keep-alive пул
+    private static void discard(HttpURLConnection connection, int statusCode) throws IOException {
+        InputStream stream = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (stream != null) {
+            try (stream) {
+                stream.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+    }
+
+    private static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            int index = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+            if (index >= 0) {
+                String name = contentType.substring(index + "charset=".length()).replace("\"", "").trim();
+                int end = name.indexOf(';');
+                try {
+                    return Charset.forName(end >= 0 ? name.substring(0, end).trim() : name);
+                } catch (IllegalArgumentException e) {
+                    return StandardCharsets.UTF_8;
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in == null ? InputStream.nullInputStream() : in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package hexlet.code.check;
+
+import hexlet.code.model.UrlCheck;
+
+import java.util.Map;
+
+// Поля, извлекаемые из HTML страницы: колонки url_checks и дополнительные поля из правил извлечения
+public record PageFields(String title, String h1, String description, Map<String, String> fields) {
+
+    public void applyTo(UrlCheck urlCheck) {
+        urlCheck.setTitle(title);
+        urlCheck.setH1(h1);
+        urlCheck.setDescription(description);
+        urlCheck.setFields(fields);
+    }
+}
@@ -0,0 +1,68 @@
+package hexlet.code.check;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Счётчики одной стадии конвейера проверок: глубина входной очереди, обработано, ошибки, занятость потоков
+public final class StageMetrics {
+    private final String name;
+    private final BlockingQueue<?> queue;
+    private final int workers;
+    private final long startedAt = System.nanoTime();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+
+    private long lastSampleAt = startedAt;
+    private long lastSampleProcessed;
+
+    StageMetrics(String name, BlockingQueue<?> queue, int workers) {
+        this.name = name;
+        this.queue = queue;
+        this.workers = workers;
+    }
+
+    void record(int items, long startNanos) {
+        processed.add(items);
+        busyNanos.add(System.nanoTime() - startNanos);
+    }
+
+    void recordFailure(int items, long startNanos) {
+        failed.add(items);
+        busyNanos.add(System.nanoTime() - startNanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    // Пропускная способность считается с момента предыдущего снимка, поэтому показывает текущую нагрузку
+    public synchronized Map<String, Object> snapshot() {
+        long now = System.nanoTime();
+        long total = processed.sum();
+        double interval = Math.max(now - lastSampleAt, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+        double perSecond = (total - lastSampleProcessed) / interval;
+        lastSampleAt = now;
+        lastSampleProcessed = total;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("stage", name);
+        stats.put("workers", workers);
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queue.size() + queue.remainingCapacity());
+        stats.put("processed", total);
+        stats.put("failed", failed.sum());
+        stats.put("throughputPerSecond", Math.round(perSecond * 10) / 10.0);
+        // Доля времени, когда потоки стадии были заняты работой, а не ждали очередь
+        double utilization = busyNanos.sum() / (double) Math.max(now - startedAt, 1) / workers;
+        stats.put("utilization", Math.round(utilization * 1000) / 1000.0);
+        return stats;
+    }
+}
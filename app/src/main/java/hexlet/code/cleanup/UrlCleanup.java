@@ -0,0 +1,167 @@
+package hexlet.code.cleanup;
+
+import hexlet.code.check.CheckPipeline;
+import hexlet.code.repository.DeletedRows;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.util.Env;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Удаление сайтов вместе с проверками. Сайты берутся пачками по URL_DELETE_CHUNK; проверки каждого сайта
+// удаляются транзакциями не больше URL_DELETE_CHECK_CHUNK строк, затем сами сайты и проверки, добавленные
+// за это время, — одной короткой транзакцией. Блокировки держатся недолго, а прерванное удаление
+// можно просто запустить заново. Одновременно выполняется только одно фоновое удаление.
+@Slf4j
+public final class UrlCleanup {
+
+    private static final int URL_CHUNK = Env.getInt("URL_DELETE_CHUNK", 100);
+    private static final int CHECK_CHUNK = Env.getInt("URL_DELETE_CHECK_CHUNK", 1000);
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+    private static final LongAdder URLS = new LongAdder();
+    private static final LongAdder CHECKS = new LongAdder();
+    private static final LongAdder CHUNKS = new LongAdder();
+    private static volatile String selection;
+    private static volatile Instant startedAt;
+    private static volatile Instant finishedAt;
+    private static volatile long lastUrlId;
+    private static volatile String error;
+
+    private UrlCleanup() {
+    }
+
+    // false, если удаление уже идёт
+    public static boolean startByIds(List<Long> ids) {
+        return start("ids (" + ids.size() + ")", byIds(ids));
+    }
+
+    public static boolean startFailingFor(int days) {
+        return start("failing for " + days + " days", failingFor(days));
+    }
+
+    public static Map<String, Object> progress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("running", RUNNING.get());
+        progress.put("selection", selection);
+        progress.put("startedAt", startedAt == null ? null : startedAt.toString());
+        progress.put("finishedAt", finishedAt == null ? null : finishedAt.toString());
+        progress.put("urlsDeleted", URLS.sum());
+        progress.put("checksDeleted", CHECKS.sum());
+        progress.put("chunks", CHUNKS.sum());
+        progress.put("lastUrlId", lastUrlId);
+        progress.put("error", error);
+        return progress;
+    }
+
+    // Синхронное удаление в потоке вызывающего, теми же пачками; в прогресс фонового удаления не входит
+    public static DeletedRows deleteNow(List<Long> ids) throws SQLException {
+        return delete(byIds(ids), false);
+    }
+
+    public static DeletedRows deleteFailingNow(int days) throws SQLException {
+        return delete(failingFor(days), false);
+    }
+
+    private static boolean start(String description, UrlSource source) {
+        if (!RUNNING.compareAndSet(false, true)) {
+            return false;
+        }
+        URLS.reset();
+        CHECKS.reset();
+        CHUNKS.reset();
+        selection = description;
+        lastUrlId = 0;
+        error = null;
+        startedAt = Instant.now();
+        finishedAt = null;
+        Thread thread = new Thread(() -> run(source), "url-cleanup");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    private static void run(UrlSource source) {
+        try {
+            DeletedRows deleted = delete(source, true);
+            log.info("Url cleanup ({}) finished: {} urls and {} checks deleted",
+                    selection, deleted.urls(), deleted.checks());
+        } catch (Exception e) {
+            error = e.getMessage();
+            log.error("Url cleanup ({}) aborted after url {}", selection, lastUrlId, e);
+        } finally {
+            finishedAt = Instant.now();
+            RUNNING.set(false);
+        }
+    }
+
+    private static DeletedRows delete(UrlSource source, boolean track) throws SQLException {
+        int urls = 0;
+        int checks = 0;
+        while (true) {
+            List<Long> chunk = source.next(URL_CHUNK);
+            if (chunk.isEmpty()) {
+                return new DeletedRows(urls, checks);
+            }
+            for (Long urlId : chunk) {
+                int deleted;
+                do {
+                    deleted = UrlCheckRepository.deleteOldestChecks(urlId, CHECK_CHUNK);
+                    checks += deleted;
+                    if (track) {
+                        CHECKS.add(deleted);
+                    }
+                } while (deleted == CHECK_CHUNK);
+            }
+            // Сначала отсекаем проверки, ещё идущие по конвейеру, иначе они запишутся после удаления
+            CheckPipeline.forget(chunk);
+            DeletedRows rows = UrlRepository.deleteWithChecks(chunk);
+            urls += rows.urls();
+            checks += rows.checks();
+            if (track) {
+                URLS.add(rows.urls());
+                CHECKS.add(rows.checks());
+                CHUNKS.increment();
+                lastUrlId = chunk.get(chunk.size() - 1);
+            }
+        }
+    }
+
+    private static UrlSource byIds(List<Long> ids) {
+        List<Long> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        int[] position = {0};
+        return limit -> {
+            int from = position[0];
+            position[0] = Math.min(from + limit, unique.size());
+            return unique.subList(from, position[0]);
+        };
+    }
+
+    // Граница считается один раз при запуске; сайты перебираются по возрастанию id
+    private static UrlSource failingFor(int days) {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(Duration.ofDays(days)));
+        long[] afterId = {0};
+        return limit -> {
+            List<Long> ids = UrlRepository.findFailingSince(cutoff, afterId[0], limit);
+            if (!ids.isEmpty()) {
+                afterId[0] = ids.get(ids.size() - 1);
+            }
+            return ids;
+        };
+    }
+
+    @FunctionalInterface
+    private interface UrlSource {
+        List<Long> next(int limit) throws SQLException;
+    }
+}
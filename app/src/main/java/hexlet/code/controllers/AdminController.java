@@ -0,0 +1,124 @@
+package hexlet.code.controllers;
+
+import hexlet.code.archive.PageArchive;
+import hexlet.code.archive.Reextractor;
+import hexlet.code.cleanup.UrlCleanup;
+import hexlet.code.profiling.FlightRecordings;
+import hexlet.code.repository.DeletedRows;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.util.Env;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.ConflictResponse;
+import io.javalin.http.ForbiddenResponse;
+import io.javalin.http.Handler;
+import io.javalin.http.HttpStatus;
+import io.javalin.http.NotFoundResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Служебные действия под /admin. Доступны только с заголовком X-Admin-Token, равным ADMIN_TOKEN;
+// если ADMIN_TOKEN не задан, раздел выключен. Тот же requireToken закрывает и /debug.
+public class AdminController {
+
+    private static final String TOKEN_HEADER = "X-Admin-Token";
+    private static final byte[] TOKEN = Env.get("ADMIN_TOKEN", "").getBytes(StandardCharsets.UTF_8);
+    private static final int JFR_MAX_SECONDS = Env.getInt("JFR_MAX_SECONDS", 300);
+
+    public static Handler requireToken = ctx -> {
+        String token = ctx.header(TOKEN_HEADER);
+        if (TOKEN.length == 0 || token == null
+                || !MessageDigest.isEqual(TOKEN, token.getBytes(StandardCharsets.UTF_8))) {
+            throw new ForbiddenResponse("Admin token is missing or invalid");
+        }
+    };
+
+    // Запуск повторного разбора всех архивных тел; 202 — запущен, 409 — уже идёт
+    public static Handler startReextraction = ctx -> {
+        boolean started = Reextractor.start();
+        ctx.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT);
+        ctx.json(Reextractor.progress());
+    };
+
+    public static Handler reextractionProgress = ctx -> ctx.json(Reextractor.progress());
+
+    // Тело страницы в том виде, в каком оно было при проверке; text/plain, чтобы браузер его не исполнял
+    public static Handler archivedBody = ctx -> {
+        Long id = ctx.pathParamAsClass("id", Long.class).get();
+        String hash = UrlCheckRepository.findBodyHash(id)
+                .orElseThrow(() -> new NotFoundResponse("Check " + id + " has no archived body"));
+        String body = PageArchive.getDefault().read(hash)
+                .orElseThrow(() -> new NotFoundResponse("Body " + hash + " is missing from the archive"));
+        ctx.contentType("text/plain; charset=utf-8");
+        ctx.result(body);
+    };
+
+    public static Handler archiveStats = ctx -> ctx.json(PageArchive.getDefault().stats());
+
+    // Фоновое удаление сайтов с проверками: ?ids=1,2,3 или ?failingDays=30; 202 — запущено, 409 — уже идёт
+    public static Handler startUrlDeletion = ctx -> {
+        boolean started;
+        String ids = ctx.queryParam("ids");
+        if (ids != null && !ids.isBlank()) {
+            started = UrlCleanup.startByIds(parseIds(ids));
+        } else if (ctx.queryParam("failingDays") != null) {
+            int days = ctx.queryParamAsClass("failingDays", Integer.class)
+                    .check(value -> value > 0, "failingDays must be positive")
+                    .get();
+            started = UrlCleanup.startFailingFor(days);
+        } else {
+            throw new BadRequestResponse("Pass ids=1,2,3 or failingDays=N");
+        }
+        ctx.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT);
+        ctx.json(UrlCleanup.progress());
+    };
+
+    public static Handler urlDeletionProgress = ctx -> ctx.json(UrlCleanup.progress());
+
+    // Один сайт удаляется сразу, теми же пачками, что и фоновое удаление
+    public static Handler deleteUrl = ctx -> {
+        Long id = ctx.pathParamAsClass("id", Long.class).get();
+        DeletedRows deleted = UrlCleanup.deleteNow(List.of(id));
+        if (deleted.urls() == 0) {
+            throw new NotFoundResponse("Url " + id + " is not found");
+        }
+        ctx.json(Map.of("urlsDeleted", deleted.urls(), "checksDeleted", deleted.checks()));
+    };
+
+    // Запись JFR на ?seconds=N (по умолчанию 30, не больше JFR_MAX_SECONDS); ответ приходит по окончании
+    // записи файлом .jfr, временный файл удаляется после отправки. 409 — запись уже идёт
+    public static Handler flightRecording = ctx -> {
+        int seconds = ctx.queryParamAsClass("seconds", Integer.class)
+                .check(value -> value > 0 && value <= JFR_MAX_SECONDS,
+                        "seconds must be between 1 and " + JFR_MAX_SECONDS)
+                .getOrDefault(30);
+        Path file;
+        try {
+            file = FlightRecordings.record(Duration.ofSeconds(seconds));
+        } catch (IllegalStateException e) {
+            throw new ConflictResponse(e.getMessage());
+        }
+        ctx.contentType("application/octet-stream");
+        ctx.header("Content-Disposition", "attachment; filename=\"" + file.getFileName() + "\"");
+        ctx.result(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE));
+    };
+
+    private static List<Long> parseIds(String ids) {
+        List<Long> result = new ArrayList<>();
+        for (String id : ids.split(",")) {
+            try {
+                result.add(Long.parseLong(id.trim()));
+            } catch (NumberFormatException e) {
+                throw new BadRequestResponse("Not an id: " + id);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,33 @@
+package hexlet.code.controllers;
+
+import hexlet.code.tracing.Trace;
+import hexlet.code.tracing.Tracer;
+import io.javalin.http.Handler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DebugController {
+
+    private static final int DEFAULT_LIMIT = 50;
+
+    // Последние трассы запросов и отдельно самые медленные; ?limit= ограничивает число последних
+    public static Handler traces = ctx -> {
+        int limit = ctx.queryParamAsClass("limit", Integer.class).getOrDefault(DEFAULT_LIMIT);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", Tracer.isEnabled());
+        result.put("recent", toMaps(Tracer.recent(limit)));
+        result.put("slowest", toMaps(Tracer.slowest()));
+        ctx.json(result);
+    };
+
+    private static List<Map<String, Object>> toMaps(List<Trace> traces) {
+        List<Map<String, Object>> result = new ArrayList<>(traces.size());
+        for (Trace trace : traces) {
+            result.add(trace.toMap());
+        }
+        return result;
+    }
+}
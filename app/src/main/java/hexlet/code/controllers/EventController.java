@@ -0,0 +1,16 @@
+package hexlet.code.controllers;
+
+import hexlet.code.events.CheckEventBus;
+import io.javalin.http.sse.SseClient;
+
+import java.util.function.Consumer;
+
+public class EventController {
+
+    public static Consumer<SseClient> allChecks = client -> CheckEventBus.subscribe(client, null);
+
+    public static Consumer<SseClient> urlChecks = client -> {
+        Long id = client.ctx().pathParamAsClass("id", Long.class).get();
+        CheckEventBus.subscribe(client, id);
+    };
+}
@@ -0,0 +1,99 @@
+package hexlet.code.controllers;
+
+import hexlet.code.util.Env;
+import io.javalin.http.Context;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// Flash-сообщения без серверных сессий: текст лежит в короткоживущей cookie, подписанной HMAC-SHA256,
+// и забирается при следующем рендере шаблона. Для нескольких инстансов нужен общий FLASH_SECRET.
+@Slf4j
+public final class Flash {
+
+    private static final String COOKIE_NAME = "flash";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MAX_AGE_SECONDS = Env.getInt("FLASH_MAX_AGE_SECONDS", 60);
+    private static final int MAX_MESSAGE_LENGTH = 1000;
+    private static final byte[] SECRET = loadSecret();
+
+    private Flash() {
+    }
+
+    // Сообщение для следующего запроса (обычно после redirect)
+    public static void set(Context ctx, String message, String type) {
+        String text = message == null ? "" : message;
+        if (text.length() > MAX_MESSAGE_LENGTH) {
+            text = text.substring(0, MAX_MESSAGE_LENGTH);
+        }
+        long expiresAt = System.currentTimeMillis() / 1000 + MAX_AGE_SECONDS;
+        String payload = encode((type + "\n" + expiresAt + "\n" + text).getBytes(StandardCharsets.UTF_8));
+        ctx.res().addHeader("Set-Cookie", COOKIE_NAME + "=" + payload + "." + encode(sign(payload))
+                + "; Path=/; Max-Age=" + MAX_AGE_SECONDS + "; HttpOnly; SameSite=Lax");
+    }
+
+    // Сообщение для шаблона, который рендерится в этом же запросе
+    public static void now(Context ctx, String message, String type) {
+        ctx.attribute("flash", message);
+        ctx.attribute("flashType", type);
+    }
+
+    public static void consume(Context ctx) {
+        String value = ctx.cookie(COOKIE_NAME);
+        if (value == null) {
+            return;
+        }
+        ctx.removeCookie(COOKIE_NAME, "/");
+        int dot = value.indexOf('.');
+        if (dot < 0) {
+            return;
+        }
+        try {
+            String payload = value.substring(0, dot);
+            byte[] signature = Base64.getUrlDecoder().decode(value.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, sign(payload))) {
+                log.warn("Flash cookie with invalid signature was ignored");
+                return;
+            }
+            String[] parts = new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8)
+                    .split("\n", 3);
+            boolean fresh = parts.length == 3 && Long.parseLong(parts[1]) >= System.currentTimeMillis() / 1000;
+            if (fresh && ctx.attribute("flash") == null) {
+                now(ctx, parts[2], parts[0]);
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Malformed flash cookie was ignored");
+        }
+    }
+
+    private static byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(SECRET, HMAC_ALGORITHM));
+            return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC is not available", e);
+        }
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static byte[] loadSecret() {
+        String secret = System.getenv("FLASH_SECRET");
+        if (secret != null && !secret.isBlank()) {
+            return secret.getBytes(StandardCharsets.UTF_8);
+        }
+        log.warn("FLASH_SECRET is not set, flash cookies are signed with a per-process key");
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        return random;
+    }
+}
@@ -0,0 +1,68 @@
+package hexlet.code.controllers;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import hexlet.code.App;
+import hexlet.code.alerts.AlertDispatcher;
+import hexlet.code.check.CheckPipeline;
+import hexlet.code.crawler.Crawler;
+import hexlet.code.repository.BaseRepository;
+import io.javalin.http.Handler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class MetricsController {
+
+    public static Handler pools = ctx -> {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("primary", poolStats(BaseRepository.dataSource));
+        if (BaseRepository.readDataSource != null) {
+            result.put("replica", poolStats(BaseRepository.readDataSource));
+        }
+        ctx.json(result);
+    };
+
+    // По каждой стадии конвейера проверок: глубина очереди, пропускная способность, занятость потоков;
+    // плюс сколько загрузок сэкономило объединение одновременных проверок и окно свежести
+    public static Handler checks = ctx -> ctx.json(CheckPipeline.metrics());
+
+    // Какой backend хранит сайты и проверки; для встроенного журнала — размер и доля мусора до уплотнения,
+    // для H2 в памяти со снимком — когда и за сколько он последний раз записан и восстановлен
+    public static Handler store = ctx -> {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (App.getEmbeddedStore() == null) {
+            result.put("backend", "jdbc");
+        } else {
+            result.put("backend", "embedded");
+            result.putAll(App.getEmbeddedStore().stats());
+        }
+        if (App.getSnapshot() != null) {
+            result.put("snapshot", App.getSnapshot().stats());
+        }
+        ctx.json(result);
+    };
+
+    // Размыкатели загрузки по хостам: разомкнутые и полуоткрытые хосты, сколько проверок записано без загрузки
+    public static Handler breakers = ctx -> ctx.json(CheckPipeline.breakers());
+
+    // Общая граница обхода: размер, выгруженное на диск, пропущенные засевы и запуски
+    public static Handler crawler = ctx -> ctx.json(Crawler.stats());
+
+    // Адреса оповещений, счётчики отправок и состояние outbox по каждому адресу
+    public static Handler alerts = ctx -> ctx.json(AlertDispatcher.stats());
+
+    private static Map<String, Object> poolStats(HikariDataSource dataSource) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        stats.put("pool", dataSource.getPoolName());
+        stats.put("maximumPoolSize", dataSource.getMaximumPoolSize());
+        if (pool != null) {
+            stats.put("active", pool.getActiveConnections());
+            stats.put("idle", pool.getIdleConnections());
+            stats.put("total", pool.getTotalConnections());
+            stats.put("awaitingConnection", pool.getThreadsAwaitingConnection());
+        }
+        return stats;
+    }
+}
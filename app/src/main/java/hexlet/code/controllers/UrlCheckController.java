@@ -1,61 +1,58 @@
 package hexlet.code.controllers;
 
+import hexlet.code.check.CheckPipeline;
+import hexlet.code.check.HostCircuitBreaker;
 import hexlet.code.model.Url;
 import hexlet.code.model.UrlCheck;
-import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.BaseRepository;
 import hexlet.code.repository.UrlRepository;
+import hexlet.code.util.Env;
 import io.javalin.http.Handler;
-import kong.unirest.HttpResponse;
-import kong.unirest.Unirest;
-import kong.unirest.UnirestException;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import java.sql.Timestamp;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 public class UrlCheckController {
 
+    private static final long CHECK_TIMEOUT_SECONDS = Env.getLong("CHECK_TIMEOUT_SECONDS", 30);
+
     public static Handler addCheck = ctx -> {
         log.debug("addCheck Handler: trying to save an UrlCheck entity to DB");
         Long id = ctx.pathParamAsClass("id", Long.class).getOrDefault(null);
-        log.info("Url's id is " + id);
+        log.debug("Url's id is {}", id);
         Url url = UrlRepository.findById(id).orElse(null);
-        log.info("Url is" + url);
+        log.debug("Url is {}", url);
 
         try {
-            HttpResponse<String> response = Unirest
-                    .get(url.getName())
-                    .asString();
-            int statusCode = response.getStatus();
-            Document document = Jsoup.parse(response.getBody());
-            String title = document.title();
-            Element h1Element = document.selectFirst("h1");
-            String h1 = h1Element == null
-                    ? ""
-                    : h1Element.text();
-            Element descriptionElement = document.selectFirst("meta[name=description]");
-            String description = descriptionElement == null
-                    ? ""
-                    : descriptionElement.attr("content");
-            Timestamp createdAt = new Timestamp(System.currentTimeMillis());
-
-            log.info("Trying to create a new object of UrlCheck class");
-            UrlCheck urlCheckToAdd = new UrlCheck(statusCode, title, h1, description, url.getId());
-            log.info("UrlCheckToAdd's fields are these: statusCode " + statusCode + " title " + title + " h1 " + h1
-                    + " description " + description + " createdAt " + createdAt + " urlId " + urlCheckToAdd.getUrlId());
-            UrlCheckRepository.save(urlCheckToAdd);
-            ctx.sessionAttribute("flash", "Страница успешно проверена");
-            ctx.sessionAttribute("flash-type", "success");
-            log.info("Check is done and added to the DB");
-        } catch (UnirestException e) {
-            ctx.sessionAttribute("flash", "Некорректный адрес");
-            ctx.sessionAttribute("flash-type", "danger");
+            UrlCheck urlCheck = CheckPipeline.submit(url).get(CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            BaseRepository.markWrite();
+            log.debug("UrlCheck's fields are these: {}", urlCheck);
+            Flash.set(ctx, "Страница успешно проверена", "success");
+            log.info("Check {} of url {} is done, status {}", urlCheck.getId(), urlCheck.getUrlId(),
+                    urlCheck.getStatusCode());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof HostCircuitBreaker.OpenCircuitException) {
+                Flash.set(ctx, "Сайт недоступен: загрузка приостановлена после серии ошибок", "warning");
+            } else if (e.getCause() instanceof IOException) {
+                Flash.set(ctx, "Некорректный адрес", "danger");
+            } else {
+                Flash.set(ctx, e.getCause().getMessage(), "danger");
+            }
+        } catch (TimeoutException e) {
+            Flash.set(ctx, "Проверка ещё выполняется, результат появится на странице", "info");
         } catch (Exception e) {
-            ctx.sessionAttribute("flash", e.getMessage());
-            ctx.sessionAttribute("flash-type", "danger");
+            Flash.set(ctx, e.getMessage(), "danger");
         }
         ctx.redirect("/urls/" + url.getId());
     };
+
+    // Перепроверка всех сайтов: ставится в конвейер в фоне, страница не ждёт завершения
+    public static Handler checkAll = ctx -> {
+        CheckPipeline.submitAll(UrlRepository.getUrls());
+        Flash.set(ctx, "Запущена проверка всех сайтов", "info");
+        ctx.redirect("/urls");
+    };
 }
@@ -0,0 +1,54 @@
+package hexlet.code.crawler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+
+// Граница обхода: отсев повторов через фильтр Блума и очередь с выгрузкой на диск
+public final class CrawlFrontier implements Closeable {
+
+    private final BloomFilter seen;
+    private final DiskBackedQueue queue;
+    private final int maxDepth;
+
+    public CrawlFrontier(long expectedUrls, double falsePositiveRate, int memoryCapacity, int maxDepth)
+            throws IOException {
+        this.seen = new BloomFilter(expectedUrls, falsePositiveRate);
+        this.queue = new DiskBackedQueue(memoryCapacity, Files.createTempFile("crawl-frontier-", ".bin"));
+        this.maxDepth = maxDepth;
+    }
+
+    public boolean offer(String url, int depth) {
+        if (depth > maxDepth || !seen.put(url)) {
+            return false;
+        }
+        queue.add(new CrawlTask(url, depth));
+        return true;
+    }
+
+    // Страница уже получена другим путём (например, проверкой) — в очередь не ставим
+    public void markSeen(String url) {
+        seen.put(url);
+    }
+
+    public CrawlTask next() {
+        return queue.poll();
+    }
+
+    public long size() {
+        return queue.size();
+    }
+
+    public long spilledSize() {
+        return queue.spilledSize();
+    }
+
+    public long seenCount() {
+        return seen.getInsertions();
+    }
+
+    @Override
+    public void close() {
+        queue.close();
+    }
+}
@@ -0,0 +1,4 @@
+package hexlet.code.crawler;
+
+public record CrawlTask(String url, int depth) {
+}
@@ -0,0 +1,260 @@
+package hexlet.code.crawler;
+
+import hexlet.code.check.FetchResult;
+import hexlet.code.check.PageFetcher;
+import hexlet.code.model.Url;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.util.Env;
+import hexlet.code.util.UrlCanonicalizer;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Режим обхода: ссылки со страницы, полученной при проверке, уходят в фоновый обход того же домена.
+// Граница обхода одна на всё приложение и живёт между проверками: фильтр Блума помнит уже поставленные
+// ссылки, поэтому повторная проверка сайта не обходит его заново, а очередь с выгрузкой на диск
+// держит в памяти не больше CRAWL_MEMORY_QUEUE задач. Сайт, обход от которого начинался меньше
+// CRAWL_RESEED_INTERVAL_S назад, повторно не засевается. Ссылки ставятся в границу сразу при разборе,
+// а потоки обхода только выбирают из неё задачи: очередь пула ограничена, лишний запуск отбрасывается —
+// работа при этом не теряется, она ждёт в границе. Когда фильтр заполнен до CRAWL_EXPECTED_URLS,
+// граница пересоздаётся, чтобы доля ложных срабатываний не росла.
+// Новые сайты (схема + хост) сохраняются тем же путём нормализации, что и в UrlController.createUrl.
+@Slf4j
+public final class Crawler {
+
+    private static final boolean ENABLED = Env.getBoolean("CRAWL_ENABLED", false);
+    private static final int MAX_DEPTH = Env.getInt("CRAWL_MAX_DEPTH", 2);
+    private static final int MAX_PAGES = Env.getInt("CRAWL_MAX_PAGES", 500);
+    private static final long EXPECTED_URLS = Env.getLong("CRAWL_EXPECTED_URLS", 1_000_000L);
+    private static final double FALSE_POSITIVE_RATE = Env.getDouble("CRAWL_FALSE_POSITIVE_RATE", 0.01);
+    private static final int MEMORY_QUEUE = Env.getInt("CRAWL_MEMORY_QUEUE", 10_000);
+    private static final long RESEED_INTERVAL_MS = TimeUnit.SECONDS.toMillis(
+            Env.getLong("CRAWL_RESEED_INTERVAL_S", 3600));
+    private static final int MAX_TRACKED_SEEDS = Env.getInt("CRAWL_MAX_TRACKED_SEEDS", 100_000);
+    private static final int THREADS = Env.getInt("CRAWL_THREADS", 2);
+    private static final HostRateLimiter RATE_LIMITER = new HostRateLimiter(Env.getLong("CRAWL_HOST_DELAY_MS", 1000));
+    // Задачи пула — только сигнал «разобрать границу», поэтому одного места в очереди достаточно
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS,
+            0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+            runnable -> {
+                Thread thread = new Thread(runnable, "crawler");
+                thread.setDaemon(true);
+                return thread;
+            },
+            (runnable, executor) -> Crawler.DRAINS_SKIPPED.increment());
+
+    // Сайт -> момент последнего засева
+    private static final Map<String, Long> SEEDED_AT = new ConcurrentHashMap<>();
+    // Сайты, уже найденные обходом, чтобы не спрашивать БД на каждую ссылку; сбрасывается при переполнении
+    private static final Set<String> REGISTERED = ConcurrentHashMap.newKeySet();
+    private static final int MAX_REGISTERED = 10_000;
+    private static final LongAdder SEEDS = new LongAdder();
+    private static final LongAdder SEEDS_SKIPPED = new LongAdder();
+    private static final LongAdder DRAINS_SKIPPED = new LongAdder();
+    private static final LongAdder FETCHED = new LongAdder();
+    private static CrawlFrontier frontier;
+
+    private Crawler() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // Вызывается из потока разбора: ставит ссылки страницы в общую границу и будит потоки обхода
+    public static void submit(String seedUrl, Document document) {
+        String seed = normalizeLink(seedUrl);
+        if (seed == null || !claimSeed(seed)) {
+            return;
+        }
+        SEEDS.increment();
+        String domain = stripWww(URI.create(seed).getHost());
+        try {
+            CrawlFrontier current = frontier();
+            current.markSeen(seed);
+            offerAll(current, domain, extractLinks(document), 1);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Crawl from {} was not queued", seed, e);
+            return;
+        }
+        EXECUTOR.execute(Crawler::drain);
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", ENABLED);
+        stats.put("seeds", SEEDS.sum());
+        stats.put("seedsSkipped", SEEDS_SKIPPED.sum());
+        stats.put("pagesFetched", FETCHED.sum());
+        stats.put("drainsSkipped", DRAINS_SKIPPED.sum());
+        synchronized (Crawler.class) {
+            if (frontier != null) {
+                stats.put("frontierSize", frontier.size());
+                stats.put("frontierSpilled", frontier.spilledSize());
+                stats.put("linksSeen", frontier.seenCount());
+            }
+        }
+        return stats;
+    }
+
+    public static List<String> extractLinks(Document document) {
+        List<String> links = new ArrayList<>();
+        for (Element anchor : document.select("a[href]")) {
+            String link = normalizeLink(anchor.absUrl("href"));
+            if (link != null) {
+                links.add(link);
+            }
+        }
+        return links;
+    }
+
+    // Схема и хост в нижнем регистре, без порта по умолчанию и фрагмента; путь и query сохраняются
+    public static String normalizeLink(String href) {
+        if (href == null || href.isEmpty()) {
+            return null;
+        }
+        try {
+            URI uri = new URI(href.trim());
+            String scheme = uri.getScheme() == null ? null : uri.getScheme().toLowerCase(Locale.ROOT);
+            if ((!"http".equals(scheme) && !"https".equals(scheme)) || uri.getHost() == null) {
+                return null;
+            }
+            StringBuilder result = new StringBuilder(href.length());
+            result.append(scheme).append("://").append(uri.getHost().toLowerCase(Locale.ROOT));
+            int port = uri.getPort();
+            boolean isDefaultPort = port == -1
+                    || ("http".equals(scheme) && port == 80)
+                    || ("https".equals(scheme) && port == 443);
+            if (!isDefaultPort) {
+                result.append(':').append(port);
+            }
+            String path = uri.getRawPath();
+            result.append(path == null || path.isEmpty() ? "/" : path);
+            if (uri.getRawQuery() != null) {
+                result.append('?').append(uri.getRawQuery());
+            }
+            return new URI(result.toString()).normalize().toString();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    // false — сайт засевался меньше CRAWL_RESEED_INTERVAL_S назад. Таблица ограничена: устаревшие записи
+    // вычищаются при переполнении, а если места всё равно нет, засев пропускается
+    private static boolean claimSeed(String seed) {
+        long now = System.currentTimeMillis();
+        if (SEEDED_AT.size() >= MAX_TRACKED_SEEDS) {
+            SEEDED_AT.values().removeIf(seededAt -> now - seededAt >= RESEED_INTERVAL_MS);
+        }
+        boolean[] claimed = new boolean[1];
+        SEEDED_AT.compute(seed, (key, seededAt) -> {
+            if (seededAt != null && now - seededAt < RESEED_INTERVAL_MS) {
+                return seededAt;
+            }
+            if (seededAt == null && SEEDED_AT.size() >= MAX_TRACKED_SEEDS) {
+                return null;
+            }
+            claimed[0] = true;
+            return now;
+        });
+        if (!claimed[0]) {
+            SEEDS_SKIPPED.increment();
+        }
+        return claimed[0];
+    }
+
+    private static synchronized CrawlFrontier frontier() throws IOException {
+        if (frontier != null && frontier.seenCount() >= EXPECTED_URLS) {
+            log.info("Crawl frontier has seen {} links, starting a new one", frontier.seenCount());
+            frontier.close();
+            frontier = null;
+        }
+        if (frontier == null) {
+            frontier = new CrawlFrontier(EXPECTED_URLS, FALSE_POSITIVE_RATE, MEMORY_QUEUE, MAX_DEPTH);
+        }
+        return frontier;
+    }
+
+    // Выбирает задачи из общей границы, пока она не опустеет, но не больше CRAWL_MAX_PAGES за запуск,
+    // чтобы поток не занимала одна длинная волна
+    private static void drain() {
+        int fetched = 0;
+        try {
+            while (fetched < MAX_PAGES) {
+                CrawlFrontier current = frontier();
+                CrawlTask task = current.next();
+                if (task == null) {
+                    break;
+                }
+                String host = URI.create(task.url()).getHost();
+                RATE_LIMITER.acquire(host);
+                fetched++;
+                FETCHED.increment();
+                try {
+                    FetchResult response = PageFetcher.fetch(task.url());
+                    String contentType = response.contentType();
+                    if (contentType != null && !contentType.contains("html")) {
+                        continue;
+                    }
+                    Document document = Jsoup.parse(response.body(), response.finalUrl());
+                    offerAll(current, stripWww(host), extractLinks(document), task.depth() + 1);
+                } catch (IOException e) {
+                    log.debug("Crawler failed to fetch {}: {}", task.url(), e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Crawl worker stopped after {} pages", fetched, e);
+        }
+        log.debug("Crawl worker fetched {} pages", fetched);
+    }
+
+    private static void offerAll(CrawlFrontier target, String domain, List<String> links, int depth) {
+        for (String link : links) {
+            if (isSameDomain(URI.create(link).getHost(), domain) && target.offer(link, depth)) {
+                register(link);
+            }
+        }
+    }
+
+    private static void register(String link) {
+        try {
+            String normalizedUrl = UrlCanonicalizer.canonicalize(link);
+            if (REGISTERED.size() >= MAX_REGISTERED) {
+                REGISTERED.clear();
+            }
+            if (REGISTERED.add(normalizedUrl) && UrlRepository.findByName(normalizedUrl).isEmpty()) {
+                UrlRepository.save(new Url(normalizedUrl));
+                log.info("Crawler discovered a new site: {}", normalizedUrl);
+            }
+        } catch (Exception e) {
+            log.debug("Crawler skipped {}: {}", link, e.getMessage());
+        }
+    }
+
+    private static boolean isSameDomain(String host, String domain) {
+        return host != null && (host.equals(domain) || host.endsWith("." + domain));
+    }
+
+    private static String stripWww(String host) {
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+}
@@ -0,0 +1,105 @@
+package hexlet.code.crawler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+
+// FIFO-очередь задач обхода: голова держится в памяти, всё, что не поместилось, дописывается в файл.
+// Пока на диске есть задачи, новые тоже идут на диск, чтобы сохранялся порядок.
+@Slf4j
+public final class DiskBackedQueue implements Closeable {
+
+    private final ArrayDeque<CrawlTask> memory = new ArrayDeque<>();
+    private final int memoryCapacity;
+    private final Path spillFile;
+    private DataOutputStream writer;
+    private DataInputStream reader;
+    private long spilled;
+    private long readBack;
+
+    public DiskBackedQueue(int memoryCapacity, Path spillFile) {
+        this.memoryCapacity = memoryCapacity;
+        this.spillFile = spillFile;
+    }
+
+    public synchronized void add(CrawlTask task) {
+        if (spilled == readBack && memory.size() < memoryCapacity) {
+            memory.addLast(task);
+            return;
+        }
+        try {
+            if (writer == null) {
+                writer = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile)));
+            }
+            writer.writeInt(task.depth());
+            writer.writeUTF(task.url());
+            spilled++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Crawl frontier spill failed: " + spillFile, e);
+        }
+    }
+
+    public synchronized CrawlTask poll() {
+        CrawlTask task = memory.pollFirst();
+        if (task != null || readBack == spilled) {
+            return task;
+        }
+        try {
+            writer.flush();
+            if (reader == null) {
+                reader = new DataInputStream(new BufferedInputStream(Files.newInputStream(spillFile)));
+            }
+            int depth = reader.readInt();
+            String url = reader.readUTF();
+            readBack++;
+            if (readBack == spilled) {
+                resetSpill();
+            }
+            return new CrawlTask(url, depth);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Crawl frontier read failed: " + spillFile, e);
+        }
+    }
+
+    public synchronized long size() {
+        return memory.size() + spilled - readBack;
+    }
+
+    public synchronized long spilledSize() {
+        return spilled - readBack;
+    }
+
+    @Override
+    public synchronized void close() {
+        memory.clear();
+        try {
+            resetSpill();
+        } catch (IOException e) {
+            log.warn("Failed to remove crawl spill file {}", spillFile, e);
+        }
+    }
+
+    // Диск полностью вычитан — файл больше не нужен
+    private void resetSpill() throws IOException {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        Files.deleteIfExists(spillFile);
+        spilled = 0;
+        readBack = 0;
+    }
+}
@@ -0,0 +1,33 @@
+package hexlet.code.crawler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Не чаще одного запроса к хосту за интервал; слоты раздаются через CAS без блокировок
+public final class HostRateLimiter {
+
+    private final long intervalNanos;
+    private final Map<String, AtomicLong> nextSlots = new ConcurrentHashMap<>();
+
+    public HostRateLimiter(long intervalMillis) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    public void acquire(String host) throws InterruptedException {
+        AtomicLong nextSlot = nextSlots.computeIfAbsent(host, key -> new AtomicLong(System.nanoTime()));
+        while (true) {
+            long now = System.nanoTime();
+            long slot = nextSlot.get();
+            long start = Math.max(now, slot);
+            if (nextSlot.compareAndSet(slot, start + intervalNanos)) {
+                long waitNanos = start - now;
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package hexlet.code.events;
+
+import hexlet.code.model.UrlCheck;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+// Данные новой проверки для SSE-клиента; поля повторяют колонки таблиц на страницах
+public record CheckEvent(
+        Long id,
+        Long urlId,
+        Integer statusCode,
+        String error,
+        String title,
+        String h1,
+        String description,
+        Long connectTimeMs,
+        Long ttfbMs,
+        Long totalTimeMs,
+        Long bodyBytes,
+        Long transferBytes,
+        Integer redirectCount,
+        String finalUrl,
+        Integer brokenLinksCount,
+        String brokenLinks,
+        String createdAt) {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")
+            .withZone(ZoneId.systemDefault());
+
+    public static CheckEvent of(UrlCheck check) {
+        return new CheckEvent(
+                check.getId(),
+                check.getUrlId(),
+                check.getStatusCode(),
+                check.getError(),
+                check.getTitle(),
+                check.getH1(),
+                check.getDescription(),
+                check.getConnectTimeMs(),
+                check.getTtfbMs(),
+                check.getTotalTimeMs(),
+                check.getBodyBytes(),
+                check.getTransferBytes(),
+                check.getRedirectCount(),
+                check.getFinalUrl(),
+                check.getBrokenLinksCount(),
+                check.getBrokenLinks(),
+                check.getCreatedAt() == null ? "" : DATE_FORMAT.format(check.getCreatedAtToInstant()));
+    }
+}
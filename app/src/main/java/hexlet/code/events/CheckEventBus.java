@@ -0,0 +1,193 @@
+package hexlet.code.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.util.Env;
+import io.javalin.http.sse.SseClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Раздача новых проверок SSE-клиентам. Публикация только кладёт событие в очередь подписчика
+// и никогда не пишет в сокет сама, поэтому медленный клиент не задерживает проверку.
+// Для каждого подписчика хранится только последнее событие по каждому url_id (слияние),
+// а подписчик, у которого скопилось больше SSE_MAX_PENDING сайтов, отключается.
+// Запись идёт в SSE_THREADS потоков; в очереди пула не больше одной задачи на подписчика. Запись
+// в сокет блокирующая, поэтому сторож раз в полсрока отключает подписчика, чья запись висит дольше
+// SSE_WRITE_TIMEOUT_MS, — иначе клиент на слиянии по одному сайту (очередь которого не растёт)
+// держал бы поток пула сколь угодно долго.
+@Slf4j
+public final class CheckEventBus {
+
+    private static final int MAX_PENDING = Env.getInt("SSE_MAX_PENDING", 256);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Set<Subscriber> SUBSCRIBERS = ConcurrentHashMap.newKeySet();
+    private static final long WRITE_TIMEOUT_MS = Env.getLong("SSE_WRITE_TIMEOUT_MS", 10_000);
+    private static final ExecutorService DISPATCHER = Executors.newFixedThreadPool(
+            Env.getInt("SSE_THREADS", 4),
+            runnable -> {
+                Thread thread = new Thread(runnable, "sse-dispatcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sse-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        long period = Math.max(1, WRITE_TIMEOUT_MS / 2);
+        WATCHDOG.scheduleWithFixedDelay(() -> dropStalled(System.nanoTime()), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Куда подписчик пишет события: для SSE — SseClient, тесты подставляют свою реализацию
+    public interface Sink {
+        void send(String event, String data);
+
+        boolean isClosed();
+
+        void close();
+    }
+
+    private CheckEventBus() {
+    }
+
+    // urlId == null — подписка на проверки всех сайтов
+    public static void subscribe(SseClient client, Long urlId) {
+        Subscriber subscriber = subscribe(new SseSink(client), urlId);
+        client.onClose(() -> SUBSCRIBERS.remove(subscriber));
+        client.keepAlive();
+    }
+
+    public static Subscriber subscribe(Sink sink, Long urlId) {
+        Subscriber subscriber = new Subscriber(sink, urlId);
+        SUBSCRIBERS.add(subscriber);
+        return subscriber;
+    }
+
+    public static void publish(UrlCheck check) {
+        if (SUBSCRIBERS.isEmpty()) {
+            return;
+        }
+        CheckEvent event = CheckEvent.of(check);
+        for (Subscriber subscriber : SUBSCRIBERS) {
+            if (subscriber.urlId == null || subscriber.urlId.equals(event.urlId())) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    public static int subscriberCount() {
+        return SUBSCRIBERS.size();
+    }
+
+    // Проход сторожа на момент now (System.nanoTime); возвращает число отключённых подписчиков.
+    // Публичный, чтобы тесты могли проверить отключение без ожидания SSE_WRITE_TIMEOUT_MS
+    public static int dropStalled(long now) {
+        int dropped = 0;
+        for (Subscriber subscriber : SUBSCRIBERS) {
+            long writeStartedAt = subscriber.writeStartedAt;
+            if (writeStartedAt != 0 && now - writeStartedAt > TimeUnit.MILLISECONDS.toNanos(WRITE_TIMEOUT_MS)
+                    && subscriber.drop("write stalled for over " + WRITE_TIMEOUT_MS + " ms")) {
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    private record SseSink(SseClient client) implements Sink {
+        @Override
+        public void send(String event, String data) {
+            client.sendEvent(event, data);
+        }
+
+        @Override
+        public boolean isClosed() {
+            return client.terminated();
+        }
+
+        @Override
+        public void close() {
+            client.close();
+        }
+    }
+
+    public static final class Subscriber implements Runnable {
+        private final Sink sink;
+        private final Long urlId;
+        private final Map<Long, CheckEvent> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // Момент начала текущей записи в сокет по System.nanoTime, 0 — запись не идёт
+        private volatile long writeStartedAt;
+
+        private Subscriber(Sink sink, Long urlId) {
+            this.sink = sink;
+            this.urlId = urlId;
+        }
+
+        private void offer(CheckEvent event) {
+            pending.merge(event.urlId(), event, (previous, next) -> next.id() > previous.id() ? next : previous);
+            if (pending.size() > MAX_PENDING) {
+                drop(pending.size() + " pending events");
+                return;
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                DISPATCHER.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (Long key : pending.keySet()) {
+                    CheckEvent event = pending.remove(key);
+                    if (event != null && !sink.isClosed()) {
+                        String data = MAPPER.writeValueAsString(event);
+                        writeStartedAt = System.nanoTime();
+                        try {
+                            sink.send("check", data);
+                        } finally {
+                            writeStartedAt = 0;
+                        }
+                    }
+                }
+            } catch (JsonProcessingException | RuntimeException e) {
+                log.warn("Failed to deliver SSE event", e);
+            } finally {
+                scheduled.set(false);
+            }
+            if (!pending.isEmpty() && !sink.isClosed() && scheduled.compareAndSet(false, true)) {
+                DISPATCHER.execute(this);
+            }
+        }
+
+        public boolean isSubscribed() {
+            return SUBSCRIBERS.contains(this);
+        }
+
+        // Число сайтов, чьи события ждут записи
+        public int pendingCount() {
+            return pending.size();
+        }
+
+        // Закрытие завершает запрос, и зависшая запись падает с ошибкой, освобождая поток
+        private boolean drop(String reason) {
+            if (!SUBSCRIBERS.remove(this)) {
+                return false;
+            }
+            log.warn("Dropping slow SSE subscriber: {}", reason);
+            pending.clear();
+            sink.close();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package hexlet.code.model;
+
+// Проверка, тело которой лежит в архиве: всё, что нужно для повторного разбора без сети
+public record ArchivedCheck(Long id, Long urlId, String url, String bodyHash) {
+}
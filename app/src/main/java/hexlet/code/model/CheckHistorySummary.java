@@ -0,0 +1,14 @@
+package hexlet.code.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Шапка истории проверок сайта: сколько всего проверок и последняя из них (null, если проверок нет)
+@Getter
+@ToString
+@AllArgsConstructor
+public final class CheckHistorySummary {
+    private final long totalChecks;
+    private final UrlCheckSummary latest;
+}
@@ -0,0 +1,32 @@
+package hexlet.code.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Arrays;
+import java.util.List;
+
+// p50/p95 полного времени ответа по последним проверкам сайта (метод ближайшего ранга)
+@Getter
+@ToString
+@AllArgsConstructor
+public final class ResponseTimeStats {
+    private final int sampleSize;
+    private final long p50;
+    private final long p95;
+
+    public static ResponseTimeStats of(List<Long> totalTimes) {
+        long[] sorted = totalTimes.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return new ResponseTimeStats(sorted.length, percentile(sorted, 50), percentile(sorted, 95));
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+}
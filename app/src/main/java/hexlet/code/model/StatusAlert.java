@@ -0,0 +1,11 @@
+package hexlet.code.model;
+
+import java.sql.Timestamp;
+
+// Смена кода ответа или заголовка сайта между двумя соседними проверками, ожидающая доставки на один адрес.
+// id стабилен между повторными отправками: по нему получатель отбрасывает дубли.
+// Код ответа null — в этой проверке сайт не ответил
+public record StatusAlert(Long id, String endpoint, Long urlId, String url, Long checkId, Long previousCheckId,
+                          Integer oldStatusCode, Integer newStatusCode, String oldTitle, String newTitle,
+                          Timestamp createdAt, int attempts) {
+}
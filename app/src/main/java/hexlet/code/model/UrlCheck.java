@@ -5,6 +5,8 @@ import lombok.Setter;
 import lombok.ToString;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 
 @ToString
 @Getter
@@ -12,14 +14,27 @@ import java.time.Instant;
 public final class UrlCheck {
 
     private Long id;
-    private int statusCode;
+    private Integer statusCode;     // null — страница не загрузилась, причина в error
     private String title;
     private String h1;
     private String description;
     private Timestamp createdAt;
     private Long urlId;
+    // Замеры загрузки; null — проверка сделана до появления замеров
+    private Long connectTimeMs;     // DNS + TCP + TLS
+    private Long ttfbMs;            // до первого байта ответа
+    private Long totalTimeMs;       // полная загрузка, включая редиректы
+    private Long bodyBytes;         // тело после распаковки
+    private Long transferBytes;     // тело в том виде, как пришло по сети
+    private Integer redirectCount;
+    private String finalUrl;
+    private String bodyHash;        // SHA-256 тела в архиве страниц
+    private Integer brokenLinksCount;   // null — ссылки не проверялись
+    private String brokenLinks;         // битые ссылки, по одной на строку
+    private Map<String, String> fields = Map.of();  // дополнительные поля из правил извлечения
+    private String error;               // сетевая ошибка или разомкнутый хост
 
-    public UrlCheck(int statusCode, String title, String h1, String description, Long urlId) {
+    public UrlCheck(Integer statusCode, String title, String h1, String description, Long urlId) {
         this.statusCode = statusCode;
         this.title = title;
         this.h1 = h1;
@@ -28,6 +43,15 @@ public final class UrlCheck {
         this.createdAt = new Timestamp(System.currentTimeMillis());
     }
 
+    // Сайт ответил кодом не выше 3xx
+    public boolean isSuccessful() {
+        return statusCode != null && statusCode < 400;
+    }
+
+    public List<String> getBrokenLinkList() {
+        return brokenLinks == null || brokenLinks.isEmpty() ? List.of() : List.of(brokenLinks.split("\n"));
+    }
+
     public Instant getCreatedAtToInstant() {
         return createdAt != null ? createdAt.toInstant() : null;
     }
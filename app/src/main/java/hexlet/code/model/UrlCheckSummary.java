@@ -0,0 +1,22 @@
+package hexlet.code.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+// Облегчённая проекция последней проверки для списка сайтов (без title/h1/description)
+@Getter
+@ToString
+@AllArgsConstructor
+public final class UrlCheckSummary {
+    private final Long id;
+    private final Long urlId;
+    private final Integer statusCode;   // null — последняя проверка не загрузила страницу
+    private final Timestamp createdAt;
+
+    public Instant getCreatedAtToInstant() {
+        return createdAt != null ? createdAt.toInstant() : null;
+    }
+}
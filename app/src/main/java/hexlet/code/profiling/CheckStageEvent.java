@@ -0,0 +1,68 @@
+package hexlet.code.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Стадия проверки сайта в записи JFR: fetch, parse или save с id сайта и кодом ответа.
+// Без активной записи begin/end/shouldCommit сводятся к проверке флага, поля не заполняются
+@Name("hexlet.CheckStage")
+@Label("Check Stage")
+@Category({"Page Analyzer", "Checks"})
+@Description("Fetch, parse or save of one site check")
+@StackTrace(false)
+public final class CheckStageEvent extends Event {
+
+    public static final String FETCH = "fetch";
+    public static final String PARSE = "parse";
+    public static final String SAVE = "save";
+    // Код ответа, когда стадия завершилась ошибкой или страница не загрузилась
+    public static final int FAILED = -1;
+
+    private static final CheckStageEvent PROBE = new CheckStageEvent();
+
+    @Label("Stage")
+    private String stage;
+
+    @Label("URL Id")
+    private long urlId;
+
+    @Label("Status Code")
+    @Description("HTTP status of the check, -1 when the stage failed or the page was not loaded")
+    private int statusCode;
+
+    @Label("Batch Size")
+    @Description("Checks saved in the same transaction; 1 for fetch and parse")
+    private int batchSize;
+
+    // Для стадий, где событие создаётся на каждую проверку пачки: без записи не аллоцируем их вовсе
+    public static boolean isRecording() {
+        return PROBE.isEnabled();
+    }
+
+    public static CheckStageEvent start(String stage, Long urlId) {
+        CheckStageEvent event = new CheckStageEvent();
+        event.begin();
+        event.stage = stage;
+        event.urlId = urlId == null ? 0 : urlId;
+        event.batchSize = 1;
+        return event;
+    }
+
+    public CheckStageEvent batchOf(int size) {
+        batchSize = size;
+        return this;
+    }
+
+    // null — проверка без кода ответа, записанная как неудачная
+    public void finish(Integer status) {
+        end();
+        if (shouldCommit()) {
+            statusCode = status == null ? FAILED : status;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package hexlet.code.profiling;
+
+import hexlet.code.util.Env;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Запись Java Flight Recorder по запросу: профиль JFR_SETTINGS ("profile" — сэмплы CPU и аллокаций,
+// блокировки, GC) плюс события приложения CheckStageEvent и RepositoryQueryEvent без порога длительности.
+// Одновременно идёт только одна запись; файл пишется во временный каталог и удаляется вызывающим.
+@Slf4j
+public final class FlightRecordings {
+
+    private static final String SETTINGS = Env.get("JFR_SETTINGS", "profile");
+    private static final AtomicBoolean RECORDING = new AtomicBoolean();
+
+    private FlightRecordings() {
+    }
+
+    // Блокирует вызывающий поток на duration; IllegalStateException — запись уже идёт
+    public static Path record(Duration duration) throws IOException, InterruptedException {
+        if (!RECORDING.compareAndSet(false, true)) {
+            throw new IllegalStateException("A flight recording is already running");
+        }
+        try (Recording recording = new Recording(configuration())) {
+            recording.setName("page-analyzer");
+            recording.enable(CheckStageEvent.class).withoutThreshold();
+            recording.enable(RepositoryQueryEvent.class).withoutThreshold();
+            recording.setToDisk(true);
+            log.info("Flight recording started for {} s with settings {}", duration.toSeconds(), SETTINGS);
+            recording.start();
+            try {
+                Thread.sleep(duration.toMillis());
+            } finally {
+                recording.stop();
+            }
+            Path file = Files.createTempFile("page-analyzer-", ".jfr");
+            recording.dump(file);
+            log.info("Flight recording written to {} ({} bytes)", file, Files.size(file));
+            return file;
+        } finally {
+            RECORDING.set(false);
+        }
+    }
+
+    public static boolean isRecording() {
+        return RECORDING.get();
+    }
+
+    private static Configuration configuration() throws IOException {
+        try {
+            return Configuration.getConfiguration(SETTINGS);
+        } catch (ParseException e) {
+            throw new IOException("Invalid JFR settings " + SETTINGS, e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package hexlet.code.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Запрос репозитория в записи JFR: имя метода (то же, что у участка трассы) и число строк
+@Name("hexlet.RepositoryQuery")
+@Label("Repository Query")
+@Category({"Page Analyzer", "Database"})
+@Description("One repository method call against the database")
+@StackTrace(false)
+public final class RepositoryQueryEvent extends Event {
+
+    @Label("Query")
+    private String query;
+
+    @Label("Rows")
+    @Description("Rows returned by a read or affected by a write")
+    private long rows;
+
+    public static RepositoryQueryEvent start(String query) {
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        event.begin();
+        event.query = query;
+        return event;
+    }
+
+    public void finish(long affectedRows) {
+        end();
+        if (shouldCommit()) {
+            rows = affectedRows;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package hexlet.code.repository;
+
+import hexlet.code.model.StatusAlert;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.tracing.Span;
+import hexlet.code.tracing.Tracer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Outbox оповещений о смене кода ответа или заголовка. Строки пишутся в той же транзакции, что и проверка:
+// оповещение есть тогда и только тогда, когда проверка сохранена. Доставкой занимается AlertDispatcher,
+// на каждый адрес — своя строка, поэтому недоступный получатель не задерживает остальных.
+// Уникальный индекс (check_id, endpoint) не даёт записать одну смену дважды
+public final class AlertOutbox extends BaseRepository {
+
+    private static final String PREVIOUS_QUERY = """
+            SELECT id, status_code, title FROM url_checks
+            WHERE url_id = ? AND id < ?
+            ORDER BY id DESC
+            LIMIT 1
+            """;
+    private static final String INSERT_QUERY = """
+            INSERT INTO check_alerts (endpoint, url_id, check_id, previous_check_id, old_status_code,
+                new_status_code, old_title, new_title, created_at, attempts, next_attempt_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?)
+            """;
+
+    // Пустой список — оповещения выключены, сохранение проверки не делает лишних запросов
+    private static volatile List<String> endpoints = List.of();
+
+    private AlertOutbox() {
+    }
+
+    public static void setEndpoints(List<String> targets) {
+        endpoints = List.copyOf(targets);
+    }
+
+    public static List<String> getEndpoints() {
+        return endpoints;
+    }
+
+    // Вызывается из JdbcUrlCheckStore внутри транзакции вставки, после того как проверкам присвоены id.
+    // Предыдущая проверка ищется по индексу (url_id, id); проверки одного сайта в пачке видят друг друга
+    static void recordChanges(Connection connection, List<UrlCheck> checks, Timestamp createdAt)
+            throws SQLException {
+        List<String> targets = endpoints;
+        if (targets.isEmpty()) {
+            return;
+        }
+        try (Span span = Tracer.span("AlertOutbox.recordChanges");
+             PreparedStatement previous = connection.prepareStatement(PREVIOUS_QUERY);
+             PreparedStatement insert = connection.prepareStatement(INSERT_QUERY)) {
+            int changes = 0;
+            for (UrlCheck check : checks) {
+                if (check.getId() == null) {
+                    continue;
+                }
+                previous.setLong(1, check.getUrlId());
+                previous.setLong(2, check.getId());
+                try (ResultSet resultSet = previous.executeQuery()) {
+                    // Первая проверка сайта ни с чем не сравнивается
+                    if (!resultSet.next()) {
+                        continue;
+                    }
+                    // Код null — сайт не ответил: переход между ответом и его отсутствием тоже смена
+                    Integer oldStatusCode = resultSet.getObject("status_code", Integer.class);
+                    String oldTitle = resultSet.getString("title");
+                    if (Objects.equals(oldStatusCode, check.getStatusCode())
+                            && Objects.equals(orEmpty(oldTitle), orEmpty(check.getTitle()))) {
+                        continue;
+                    }
+                    for (String endpoint : targets) {
+                        insert.setString(1, endpoint);
+                        insert.setLong(2, check.getUrlId());
+                        insert.setLong(3, check.getId());
+                        insert.setLong(4, resultSet.getLong("id"));
+                        insert.setObject(5, oldStatusCode, Types.INTEGER);
+                        insert.setObject(6, check.getStatusCode(), Types.INTEGER);
+                        insert.setString(7, oldTitle);
+                        insert.setString(8, check.getTitle());
+                        insert.setTimestamp(9, createdAt);
+                        insert.setTimestamp(10, createdAt);
+                        insert.addBatch();
+                        changes++;
+                    }
+                }
+            }
+            if (changes > 0) {
+                insert.executeBatch();
+            }
+        }
+    }
+
+    // Недоставленные оповещения адреса, чья очередь попытки настала, в порядке появления
+    public static List<StatusAlert> findPending(String endpoint, Timestamp now, int maxAttempts, int limit)
+            throws SQLException {
+        String query = """
+                SELECT a.id, a.endpoint, a.url_id, u.name, a.check_id, a.previous_check_id, a.old_status_code,
+                    a.new_status_code, a.old_title, a.new_title, a.created_at, a.attempts
+                FROM check_alerts a
+                LEFT JOIN urls u ON u.id = a.url_id
+                WHERE a.endpoint = ? AND a.delivered_at IS NULL AND a.attempts < ? AND a.next_attempt_at <= ?
+                ORDER BY a.id
+                LIMIT ?
+                """;
+        return queryList("AlertOutbox.findPending", dataSource, query, preparedStatement -> {
+            preparedStatement.setString(1, endpoint);
+            preparedStatement.setInt(2, maxAttempts);
+            preparedStatement.setTimestamp(3, now);
+            preparedStatement.setInt(4, limit);
+        }, resultSet -> new StatusAlert(
+                resultSet.getLong("id"),
+                resultSet.getString("endpoint"),
+                resultSet.getLong("url_id"),
+                resultSet.getString("name"),
+                resultSet.getLong("check_id"),
+                resultSet.getLong("previous_check_id"),
+                resultSet.getObject("old_status_code", Integer.class),
+                resultSet.getObject("new_status_code", Integer.class),
+                resultSet.getString("old_title"),
+                resultSet.getString("new_title"),
+                resultSet.getTimestamp("created_at"),
+                resultSet.getInt("attempts")));
+    }
+
+    public static void markDelivered(List<StatusAlert> alerts, Timestamp deliveredAt) throws SQLException {
+        update("AlertOutbox.markDelivered",
+                "UPDATE check_alerts SET delivered_at = ?, attempts = attempts + 1, last_error = NULL WHERE id = ?",
+                2, alerts, preparedStatement -> preparedStatement.setTimestamp(1, deliveredAt));
+    }
+
+    public static void markFailed(List<StatusAlert> alerts, Timestamp nextAttemptAt, String error)
+            throws SQLException {
+        String message = error.length() > 1024 ? error.substring(0, 1024) : error;
+        update("AlertOutbox.markFailed",
+                "UPDATE check_alerts SET next_attempt_at = ?, attempts = attempts + 1, last_error = ? WHERE id = ?",
+                3, alerts, preparedStatement -> {
+                    preparedStatement.setTimestamp(1, nextAttemptAt);
+                    preparedStatement.setString(2, message);
+                });
+    }
+
+    // Доставленные оповещения нужны только для метрик и разбора инцидентов
+    public static int deleteDelivered(Timestamp before) throws SQLException {
+        try (Span span = Tracer.span("AlertOutbox.deleteDelivered");
+             Connection connection = connect(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     "DELETE FROM check_alerts WHERE delivered_at < ?")) {
+            preparedStatement.setTimestamp(1, before);
+            return preparedStatement.executeUpdate();
+        }
+    }
+
+    // По каждому адресу: ожидают доставки, доставлены, брошены после исчерпания попыток
+    public static Map<String, Map<String, Long>> counts(int maxAttempts) throws SQLException {
+        String query = """
+                SELECT endpoint,
+                    SUM(CASE WHEN delivered_at IS NULL AND attempts < ? THEN 1 ELSE 0 END) AS pending,
+                    SUM(CASE WHEN delivered_at IS NOT NULL THEN 1 ELSE 0 END) AS delivered,
+                    SUM(CASE WHEN delivered_at IS NULL AND attempts >= ? THEN 1 ELSE 0 END) AS dead
+                FROM check_alerts
+                GROUP BY endpoint
+                """;
+        Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Long>> entry : queryList("AlertOutbox.counts", dataSource, query,
+                preparedStatement -> {
+                    preparedStatement.setInt(1, maxAttempts);
+                    preparedStatement.setInt(2, maxAttempts);
+                }, resultSet -> Map.entry(resultSet.getString("endpoint"), Map.of(
+                        "pending", resultSet.getLong("pending"),
+                        "delivered", resultSet.getLong("delivered"),
+                        "dead", resultSet.getLong("dead"))))) {
+            counts.put(entry.getKey(), entry.getValue());
+        }
+        return counts;
+    }
+
+    // binder задаёт общие для всех строк параметры, idIndex — номер параметра с id оповещения
+    private static void update(String name, String query, int idIndex, List<StatusAlert> alerts,
+                               StatementBinder binder) throws SQLException {
+        try (Span span = Tracer.span(name);
+             Connection connection = connect(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            for (StatusAlert alert : alerts) {
+                binder.bind(preparedStatement);
+                preparedStatement.setLong(idIndex, alert.id());
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+
+    private static String orEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
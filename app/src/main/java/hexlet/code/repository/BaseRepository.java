@@ -1,7 +1,96 @@
 package hexlet.code.repository;
 
 import com.zaxxer.hikari.HikariDataSource;
+import hexlet.code.profiling.RepositoryQueryEvent;
+import hexlet.code.tracing.Span;
+import hexlet.code.tracing.Tracer;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 public class BaseRepository {
-    public static HikariDataSource dataSource;
+    public static HikariDataSource dataSource;      // Основная БД: все записи
+    public static HikariDataSource readDataSource;  // Реплика для чтения, null — читаем из основной
+
+    // Чтения после собственной записи пользователя идут в основную БД, пока реплика может отставать.
+    // WROTE задан только внутри HTTP-запроса (null — потока запроса нет): записи фоновых потоков —
+    // конвейера, обхода, очистки — не должны навсегда переводить пул их потоков на основную БД
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = ThreadLocal.withInitial(() -> false);
+    private static final ThreadLocal<Boolean> WROTE = new ThreadLocal<>();
+
+    public static void startRequest(boolean pinnedToPrimary) {
+        PINNED_TO_PRIMARY.set(pinnedToPrimary);
+        WROTE.set(false);
+    }
+
+    // Возвращает true, если за запрос была запись
+    public static boolean finishRequest() {
+        boolean wrote = Boolean.TRUE.equals(WROTE.get());
+        PINNED_TO_PRIMARY.remove();
+        WROTE.remove();
+        return wrote;
+    }
+
+    // Публичный, чтобы запрос мог отметить запись, выполненную за него фоновым потоком.
+    // Вне запроса ничего не делает
+    public static void markWrite() {
+        if (WROTE.get() != null) {
+            WROTE.set(true);
+        }
+    }
+
+    protected static DataSource readSource() {
+        if (readDataSource == null || PINNED_TO_PRIMARY.get() || Boolean.TRUE.equals(WROTE.get())) {
+            return dataSource;
+        }
+        return readDataSource;
+    }
+
+    // Получение соединения из пула — отдельный участок трассы: видно ожидание свободного соединения
+    protected static Connection connect(DataSource source) throws SQLException {
+        try (Span span = Tracer.span("db.connection")) {
+            return source.getConnection();
+        }
+    }
+
+    protected static <T> List<T> queryList(String name, DataSource source, String query, StatementBinder binder,
+                                           RowMapper<T> mapper) throws SQLException {
+        RepositoryQueryEvent event = RepositoryQueryEvent.start(name);
+        try (Span span = Tracer.span(name);
+             Connection connection = connect(source);
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            binder.bind(preparedStatement);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                List<T> result = new ArrayList<>();
+                while (resultSet.next()) {
+                    result.add(mapper.map(resultSet));
+                }
+                event.finish(result.size());
+                return result;
+            }
+        }
+    }
+
+    protected static <T> Optional<T> queryOne(String name, DataSource source, String query, StatementBinder binder,
+                                              RowMapper<T> mapper) throws SQLException {
+        RepositoryQueryEvent event = RepositoryQueryEvent.start(name);
+        try (Span span = Tracer.span(name);
+             Connection connection = connect(source);
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            binder.bind(preparedStatement);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                Optional<T> result = resultSet.next()
+                        ? Optional.of(mapper.map(resultSet))
+                        : Optional.empty();
+                event.finish(result.isPresent() ? 1 : 0);
+                return result;
+            }
+        }
+    }
 }
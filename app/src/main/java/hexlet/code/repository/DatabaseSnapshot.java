@@ -0,0 +1,418 @@
+package hexlet.code.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// Снимок таблиц urls, url_checks и check_alerts для H2 в памяти: пишется при остановке и по таймеру,
+// читается при старте.
+// Формат — поток Deflate (zlib, с контрольной суммой) поверх:
+//   magic(4) | версия(4) | для каждой таблицы: 1 | имя | колонки (имя, тип) | строки (1 | маска NULL | значения) | 0
+//   | 0 в конце
+// Колонки описываются по ResultSetMetaData, поэтому новые колонки схемы не ломают старые снимки:
+// при восстановлении берутся только колонки, которые есть и в снимке, и в таблице.
+// Снимок пишется во временный файл и атомарно заменяет предыдущий — оборванной записи не бывает.
+@Slf4j
+public final class DatabaseSnapshot implements Closeable {
+
+    private static final int MAGIC = 0x534E4150;
+    private static final int VERSION = 1;
+    private static final List<String> TABLES = List.of("urls", "url_checks", "check_alerts");
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final byte LONG = 1;
+    private static final byte INT = 2;
+    private static final byte STRING = 3;
+    private static final byte TIMESTAMP = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte BOOLEAN = 6;
+
+    private final Path path;
+    private final DataSource dataSource;
+    private final int batchSize;
+    private ScheduledExecutorService timer;
+    private volatile Map<String, Object> lastWrite = Map.of();
+    private volatile Map<String, Object> lastRestore = Map.of();
+
+    public DatabaseSnapshot(Path path, DataSource dataSource, int batchSize) {
+        this.path = path;
+        this.dataSource = dataSource;
+        this.batchSize = batchSize;
+    }
+
+    public synchronized void startPeriodic(long intervalSeconds) {
+        if (timer != null || intervalSeconds <= 0) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "database-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(() -> {
+            try {
+                write();
+            } catch (IOException | SQLException | RuntimeException e) {
+                log.error("Database snapshot {} failed", path, e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Останавливает таймер и пишет последний снимок
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (timer != null) {
+                timer.shutdownNow();
+                timer = null;
+            }
+        }
+        try {
+            write();
+        } catch (SQLException e) {
+            throw new IOException("Failed to write the final snapshot", e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("path", path.toString());
+        stats.put("lastWrite", lastWrite);
+        stats.put("lastRestore", lastRestore);
+        return stats;
+    }
+
+    // Все таблицы читаются в одной транзакции, так что проверки в снимке не ссылаются на сайты, которых в нём нет
+    public synchronized Map<String, Long> write() throws IOException, SQLException {
+        long started = System.nanoTime();
+        Map<String, Long> rows = new LinkedHashMap<>();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        // Самое быстрое сжатие: снимок пишется и в хуке остановки, где время ограничено
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(
+                    Files.newOutputStream(temporary), deflater, BUFFER_BYTES), BUFFER_BYTES))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (String table : TABLES) {
+                    rows.put(table, writeTable(connection, table, out));
+                }
+                out.writeByte(0);
+            } finally {
+                connection.rollback();
+            }
+        } finally {
+            deflater.end();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        lastWrite = result(rows, elapsedMs);
+        log.info("Database snapshot {} written in {} ms: {}", path, elapsedMs, rows);
+        return rows;
+    }
+
+    // Вызывается на пустой схеме до приёма запросов. Нет файла — нечего восстанавливать;
+    // повреждённый файл — ошибка старта, чтобы следующий снимок не затёр данные пустыми таблицами
+    public Map<String, Long> restore() throws IOException, SQLException {
+        Map<String, Long> rows = new LinkedHashMap<>();
+        if (!Files.exists(path)) {
+            log.info("Database snapshot {} not found, starting empty", path);
+            return rows;
+        }
+        long started = System.nanoTime();
+        verify();
+        Inflater inflater = new Inflater();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(Files.newInputStream(path), inflater, BUFFER_BYTES), BUFFER_BYTES));
+             Connection connection = dataSource.getConnection()) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a database snapshot: " + path);
+            }
+            connection.setAutoCommit(false);
+            while (in.readByte() == 1) {
+                String table = readString(in);
+                rows.put(table, restoreTable(connection, table, in));
+            }
+            if (in.read() != -1) {
+                throw new IOException("Unexpected data after the end of snapshot " + path);
+            }
+            connection.commit();
+        } catch (EOFException e) {
+            throw new IOException("Database snapshot " + path + " is truncated", e);
+        } finally {
+            inflater.end();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        lastRestore = result(rows, elapsedMs);
+        log.info("Database snapshot {} restored in {} ms: {}", path, elapsedMs, rows);
+        return rows;
+    }
+
+    // Сначала файл целиком распаковывается вхолостую: контрольная сумма zlib проверяется до первой вставки,
+    // а не после того, как часть испорченных строк уже попала в таблицы
+    private void verify() throws IOException {
+        Inflater inflater = new Inflater();
+        try (InflaterInputStream in = new InflaterInputStream(Files.newInputStream(path), inflater, BUFFER_BYTES)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (EOFException e) {
+            throw new IOException("Database snapshot " + path + " is truncated", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private long writeTable(Connection connection, String table, DataOutputStream out)
+            throws SQLException, IOException {
+        try (Statement statement = connection.createStatement()) {
+            statement.setFetchSize(batchSize);
+            try (ResultSet resultSet = statement.executeQuery("SELECT * FROM " + table)) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                int columns = metaData.getColumnCount();
+                if (columns > Long.SIZE) {
+                    throw new SQLException("Table " + table + " has more columns than a snapshot row can hold");
+                }
+                byte[] kinds = new byte[columns];
+                out.writeByte(1);
+                writeString(out, table);
+                out.writeInt(columns);
+                for (int i = 0; i < columns; i++) {
+                    kinds[i] = kindOf(table, metaData.getColumnName(i + 1), metaData.getColumnType(i + 1));
+                    writeString(out, metaData.getColumnName(i + 1).toLowerCase(Locale.ROOT));
+                    out.writeByte(kinds[i]);
+                }
+                Object[] values = new Object[columns];
+                long rows = 0;
+                while (resultSet.next()) {
+                    long nulls = 0;
+                    for (int i = 0; i < columns; i++) {
+                        values[i] = read(resultSet, i + 1, kinds[i]);
+                        if (values[i] == null) {
+                            nulls |= 1L << i;
+                        }
+                    }
+                    out.writeByte(1);
+                    out.writeLong(nulls);
+                    for (int i = 0; i < columns; i++) {
+                        if (values[i] != null) {
+                            writeValue(out, kinds[i], values[i]);
+                        }
+                    }
+                    rows++;
+                }
+                out.writeByte(0);
+                return rows;
+            }
+        }
+    }
+
+    private long restoreTable(Connection connection, String table, DataInputStream in)
+            throws SQLException, IOException {
+        int columns = in.readInt();
+        String[] names = new String[columns];
+        byte[] kinds = new byte[columns];
+        for (int i = 0; i < columns; i++) {
+            names[i] = readString(in);
+            kinds[i] = in.readByte();
+        }
+        // Колонки таблицы в текущей схеме; то, чего в ней больше нет, читается и пропускается
+        Map<String, Integer> targetTypes = TABLES.contains(table) ? columnTypes(connection, table) : Map.of();
+        if (targetTypes.isEmpty()) {
+            log.warn("Snapshot table {} is not in the schema, skipping it", table);
+        }
+        int[] positions = new int[columns];
+        List<String> kept = new ArrayList<>();
+        for (int i = 0; i < columns; i++) {
+            positions[i] = targetTypes.containsKey(names[i]) ? kept.size() + 1 : 0;
+            if (positions[i] > 0) {
+                kept.add(names[i]);
+            }
+        }
+        String insert = "INSERT INTO " + table + " (" + String.join(", ", kept) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(kept.size(), "?")) + ")";
+        long rows = 0;
+        try (PreparedStatement statement = kept.isEmpty() ? null : connection.prepareStatement(insert)) {
+            int batched = 0;
+            while (in.readByte() == 1) {
+                long nulls = in.readLong();
+                for (int i = 0; i < columns; i++) {
+                    Object value = (nulls & 1L << i) != 0 ? null : readValue(in, kinds[i]);
+                    if (statement != null && positions[i] > 0) {
+                        bind(statement, positions[i], value, targetTypes.get(names[i]));
+                    }
+                }
+                rows++;
+                if (statement == null) {
+                    continue;
+                }
+                statement.addBatch();
+                if (++batched == batchSize) {
+                    statement.executeBatch();
+                    connection.commit();
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                statement.executeBatch();
+            }
+        }
+        if (kept.contains("id")) {
+            restartIdentity(connection, table);
+        }
+        connection.commit();
+        return rows;
+    }
+
+    // Вставка с явными id не двигает счётчик identity: новые строки должны получать id после восстановленных
+    private static void restartIdentity(Connection connection, String table) throws SQLException {
+        long next;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table)) {
+            resultSet.next();
+            next = resultSet.getLong(1);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next);
+        }
+    }
+
+    private static Map<String, Integer> columnTypes(Connection connection, String table) throws SQLException {
+        Map<String, Integer> types = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                types.put(metaData.getColumnName(i).toLowerCase(Locale.ROOT), metaData.getColumnType(i));
+            }
+        }
+        return types;
+    }
+
+    private static byte kindOf(String table, String column, int sqlType) throws SQLException {
+        return switch (sqlType) {
+            case Types.BIGINT -> LONG;
+            case Types.INTEGER, Types.SMALLINT, Types.TINYINT -> INT;
+            case Types.VARCHAR, Types.CHAR, Types.LONGVARCHAR, Types.CLOB, Types.NVARCHAR, Types.NCLOB -> STRING;
+            case Types.TIMESTAMP -> TIMESTAMP;
+            case Types.DOUBLE, Types.FLOAT, Types.REAL -> DOUBLE;
+            case Types.BOOLEAN, Types.BIT -> BOOLEAN;
+            default -> throw new SQLException("Column " + table + "." + column + " of SQL type " + sqlType
+                    + " is not supported by snapshots");
+        };
+    }
+
+    private static Object read(ResultSet resultSet, int column, byte kind) throws SQLException {
+        Object value = switch (kind) {
+            case LONG -> resultSet.getLong(column);
+            case INT -> resultSet.getInt(column);
+            case STRING -> resultSet.getString(column);
+            case TIMESTAMP -> resultSet.getTimestamp(column);
+            case DOUBLE -> resultSet.getDouble(column);
+            default -> resultSet.getBoolean(column);
+        };
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static void writeValue(DataOutputStream out, byte kind, Object value) throws IOException {
+        switch (kind) {
+            case LONG -> out.writeLong((Long) value);
+            case INT -> out.writeInt((Integer) value);
+            case STRING -> writeString(out, (String) value);
+            case TIMESTAMP -> {
+                Timestamp timestamp = (Timestamp) value;
+                out.writeLong(timestamp.getTime());
+                out.writeInt(timestamp.getNanos());
+            }
+            case DOUBLE -> out.writeDouble((Double) value);
+            default -> out.writeBoolean((Boolean) value);
+        }
+    }
+
+    private static Object readValue(DataInputStream in, byte kind) throws IOException {
+        return switch (kind) {
+            case LONG -> in.readLong();
+            case INT -> in.readInt();
+            case STRING -> readString(in);
+            case TIMESTAMP -> {
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                yield timestamp;
+            }
+            case DOUBLE -> in.readDouble();
+            case BOOLEAN -> in.readBoolean();
+            default -> throw new IOException("Unknown column type " + kind + " in the snapshot");
+        };
+    }
+
+    private static void bind(PreparedStatement statement, int position, Object value, int sqlType)
+            throws SQLException {
+        if (value == null) {
+            statement.setNull(position, sqlType);
+        } else {
+            statement.setObject(position, value);
+        }
+    }
+
+    // writeUTF ограничен 64 КБ, а description и broken_links бывают длиннее
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative string length in the snapshot");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, Object> result(Map<String, Long> rows, long elapsedMs) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("at", Instant.now().toString());
+        result.put("ms", elapsedMs);
+        result.put("rows", rows);
+        return result;
+    }
+}
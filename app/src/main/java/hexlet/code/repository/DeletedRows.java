@@ -0,0 +1,5 @@
+package hexlet.code.repository;
+
+// Сколько строк удалила одна транзакция удаления сайтов
+public record DeletedRows(int urls, int checks) {
+}
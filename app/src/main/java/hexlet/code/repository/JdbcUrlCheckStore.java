@@ -0,0 +1,370 @@
+package hexlet.code.repository;
+
+import hexlet.code.model.ArchivedCheck;
+import hexlet.code.model.CheckHistorySummary;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.model.UrlCheckSummary;
+import hexlet.code.profiling.RepositoryQueryEvent;
+import hexlet.code.tracing.Span;
+import hexlet.code.tracing.Tracer;
+import lombok.extern.slf4j.Slf4j;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Optional;
+import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
+
+@Slf4j
+public final class JdbcUrlCheckStore extends BaseRepository implements UrlCheckStore {
+
+    private static final String INSERT_QUERY = """
+                        INSERT INTO url_checks (status_code, title, h1, description, created_at, url_id,
+                            connect_time_ms, ttfb_ms, total_time_ms, body_bytes, transfer_bytes,
+                            redirect_count, final_url, body_hash, broken_links_count, broken_links, fields, error)
+                        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                        """;
+    // Ширины колонок url_checks: длинный <title> на реальной странице — обычное дело
+    private static final int TITLE_LENGTH = 255;
+    private static final int H1_LENGTH = 255;
+    private static final int FINAL_URL_LENGTH = 2048;
+    private static final int ERROR_LENGTH = 1024;
+
+    @Override
+    public void save(UrlCheck urlCheck) throws SQLException {
+
+        log.debug("UrlCheckRepository's method save() was started!");
+        Timestamp dayTime = new Timestamp(System.currentTimeMillis());
+
+        RepositoryQueryEvent event = RepositoryQueryEvent.start("UrlCheckRepository.save");
+        // Проверка и оповещение о смене статуса или заголовка фиксируются одной транзакцией
+        try (Span span = Tracer.span("UrlCheckRepository.save");
+             Connection connection = connect(dataSource)) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection
+                    .prepareStatement(INSERT_QUERY, Statement.RETURN_GENERATED_KEYS)) {
+                bindInsert(preparedStatement, urlCheck, dayTime);
+
+                log.debug("preparedStatement is: {}", preparedStatement);
+                preparedStatement.executeUpdate();
+                try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        urlCheck.setId(generatedKeys.getLong(1));
+                    }
+                }
+                AlertOutbox.recordChanges(connection, List.of(urlCheck), dayTime);
+                connection.commit();
+                markWrite();
+                event.finish(1);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException throwables) {
+            log.error(throwables.getMessage(), throwables);
+            throw new SQLException("DB has not returned an id after attempt to save the UrlCheck entity!");
+        }
+    }
+
+    // Пакетная вставка одной транзакцией: один round-trip и один commit на всю пачку.
+    // Вызывается из фонового потока, поэтому запись для read-your-writes отмечает вызывающий запрос.
+    @Override
+    public void saveAll(List<UrlCheck> urlChecks) throws SQLException {
+        if (urlChecks.isEmpty()) {
+            return;
+        }
+        Timestamp dayTime = new Timestamp(System.currentTimeMillis());
+
+        RepositoryQueryEvent event = RepositoryQueryEvent.start("UrlCheckRepository.saveAll");
+        try (Connection connection = connect(dataSource)) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection
+                    .prepareStatement(INSERT_QUERY, Statement.RETURN_GENERATED_KEYS)) {
+                for (UrlCheck urlCheck : urlChecks) {
+                    bindInsert(preparedStatement, urlCheck, dayTime);
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                    for (UrlCheck urlCheck : urlChecks) {
+                        if (!generatedKeys.next()) {
+                            throw new SQLException("DB has returned fewer ids than UrlCheck entities in the batch");
+                        }
+                        urlCheck.setId(generatedKeys.getLong(1));
+                    }
+                }
+                AlertOutbox.recordChanges(connection, urlChecks, dayTime);
+                connection.commit();
+                event.finish(urlChecks.size());
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    // Обрезка меняет саму проверку, а не только параметры: сравнение заголовков в AlertOutbox
+    // и событие для SSE видят то же значение, что и в таблице
+    private static void bindInsert(PreparedStatement preparedStatement, UrlCheck urlCheck,
+                                   Timestamp createdAt) throws SQLException {
+        urlCheck.setTitle(truncate(urlCheck.getTitle(), TITLE_LENGTH));
+        urlCheck.setH1(truncate(urlCheck.getH1(), H1_LENGTH));
+        urlCheck.setFinalUrl(truncate(urlCheck.getFinalUrl(), FINAL_URL_LENGTH));
+        urlCheck.setError(truncate(urlCheck.getError(), ERROR_LENGTH));
+        preparedStatement.setObject(1, urlCheck.getStatusCode(), Types.INTEGER);
+        preparedStatement.setString(2, urlCheck.getTitle());
+        preparedStatement.setString(3, urlCheck.getH1());
+        preparedStatement.setString(4, urlCheck.getDescription());
+        preparedStatement.setTimestamp(5, createdAt);
+        preparedStatement.setLong(6, urlCheck.getUrlId());
+        preparedStatement.setObject(7, urlCheck.getConnectTimeMs(), Types.BIGINT);
+        preparedStatement.setObject(8, urlCheck.getTtfbMs(), Types.BIGINT);
+        preparedStatement.setObject(9, urlCheck.getTotalTimeMs(), Types.BIGINT);
+        preparedStatement.setObject(10, urlCheck.getBodyBytes(), Types.BIGINT);
+        preparedStatement.setObject(11, urlCheck.getTransferBytes(), Types.BIGINT);
+        preparedStatement.setObject(12, urlCheck.getRedirectCount(), Types.INTEGER);
+        preparedStatement.setString(13, urlCheck.getFinalUrl());
+        preparedStatement.setString(14, urlCheck.getBodyHash());
+        preparedStatement.setObject(15, urlCheck.getBrokenLinksCount(), Types.INTEGER);
+        preparedStatement.setString(16, urlCheck.getBrokenLinks());
+        preparedStatement.setString(17, RowMappers.writeFields(urlCheck.getFields()));
+        preparedStatement.setString(18, urlCheck.getError());
+    }
+
+    // Суррогатная пара на границе не разрывается
+    private static String truncate(String value, int length) {
+        if (value == null || value.length() <= length) {
+            return value;
+        }
+        int end = Character.isHighSurrogate(value.charAt(length - 1)) ? length - 1 : length;
+        return value.substring(0, end);
+    }
+
+    @Override
+    public Optional<UrlCheck> findLastCheckByUrlId(Long urlId) throws SQLException {
+        String query = """
+                SELECT %s FROM url_checks
+                WHERE url_id = ?
+                ORDER BY id DESC
+                LIMIT 1
+                """.formatted(RowMappers.URL_CHECK_COLUMNS);
+
+        try {
+            return queryOne("UrlCheckRepository.findLastCheckByUrlId", readSource(), query,
+                    preparedStatement -> preparedStatement.setLong(1, urlId),
+                    RowMappers.URL_CHECK);
+        } catch (SQLException throwables) {
+            log.error(throwables.getMessage(), throwables);
+            throw new SQLException("Last urlCheck of url with id " + urlId + " was not found!");
+        }
+    }
+
+    @Override
+    public Map<Long, UrlCheck> findLatestChecks() throws SQLException {
+        String query = """
+                SELECT DISTINCT ON (url_id) %s FROM url_checks
+                ORDER BY url_id DESC, id DESC
+                """.formatted(RowMappers.URL_CHECK_COLUMNS);
+
+        Map<Long, UrlCheck> result = new HashMap<>();
+        List<UrlCheck> checks = queryList("UrlCheckRepository.findLatestChecks", readSource(), query,
+                StatementBinder.NONE, RowMappers.URL_CHECK);
+        for (UrlCheck check : checks) {
+            result.put(check.getUrlId(), check);
+        }
+        return result;
+    }
+
+    // Для списка сайтов нужны только код ответа и дата — description не тянем
+    @Override
+    public Map<Long, UrlCheckSummary> findLatestCheckSummaries() throws SQLException {
+        String query = """
+                SELECT DISTINCT ON (url_id) %s FROM url_checks
+                ORDER BY url_id DESC, id DESC
+                """.formatted(RowMappers.URL_CHECK_SUMMARY_COLUMNS);
+
+        Map<Long, UrlCheckSummary> result = new HashMap<>();
+        List<UrlCheckSummary> summaries = queryList("UrlCheckRepository.findLatestCheckSummaries", readSource(),
+                query, StatementBinder.NONE, RowMappers.URL_CHECK_SUMMARY);
+        for (UrlCheckSummary summary : summaries) {
+            result.put(summary.getUrlId(), summary);
+        }
+        return result;
+    }
+
+    @Override
+    public List<UrlCheck> getAllChecks(Long urlId) throws SQLException {
+        String query = """
+                SELECT %s FROM url_checks WHERE url_id = ?
+                ORDER BY created_at DESC
+                """.formatted(RowMappers.URL_CHECK_COLUMNS);
+
+        try {
+            return queryList("UrlCheckRepository.getAllChecks", readSource(), query,
+                    preparedStatement -> preparedStatement.setLong(1, urlId),
+                    RowMappers.URL_CHECK);
+        } catch (SQLException throwables) {
+            log.error(throwables.getMessage(), throwables);
+            throw new SQLException("DB does not find checks of url with id " + urlId);
+        }
+    }
+
+    // Keyset-пагинация по индексу (url_id, id): страница читается диапазоном индекса без сортировки
+    // и без OFFSET, поэтому стоит одинаково и для первой страницы, и для сотой
+    @Override
+    public List<UrlCheck> findChecksPage(Long urlId, Long beforeId, int limit) throws SQLException {
+        String query = """
+                SELECT %s FROM url_checks
+                WHERE url_id = ? AND id < ?
+                ORDER BY id DESC
+                LIMIT ?
+                """.formatted(RowMappers.URL_CHECK_COLUMNS);
+
+        return queryList("UrlCheckRepository.findChecksPage", readSource(), query, preparedStatement -> {
+            preparedStatement.setLong(1, urlId);
+            preparedStatement.setLong(2, beforeId == null ? Long.MAX_VALUE : beforeId);
+            preparedStatement.setInt(3, limit);
+        }, RowMappers.URL_CHECK);
+    }
+
+    // Число проверок и последняя проверка одним запросом; оба подзапроса идут по индексу (url_id, id)
+    @Override
+    public CheckHistorySummary findHistorySummary(Long urlId) throws SQLException {
+        String query = """
+                SELECT %s, (SELECT COUNT(*) FROM url_checks WHERE url_id = ?) FROM url_checks
+                WHERE url_id = ?
+                ORDER BY id DESC
+                LIMIT 1
+                """.formatted(RowMappers.URL_CHECK_SUMMARY_COLUMNS);
+
+        return queryOne("UrlCheckRepository.findHistorySummary", readSource(), query, preparedStatement -> {
+            preparedStatement.setLong(1, urlId);
+            preparedStatement.setLong(2, urlId);
+        }, resultSet -> new CheckHistorySummary(resultSet.getLong(5), RowMappers.URL_CHECK_SUMMARY.map(resultSet)))
+                .orElseGet(() -> new CheckHistorySummary(0, null));
+    }
+
+    // Граница пачки ищется по индексу (url_id, id), удаление — диапазон того же индекса:
+    // одна короткая транзакция на limit строк вместо одной на всю историю сайта
+    @Override
+    public int deleteOldestChecks(Long urlId, int limit) throws SQLException {
+        String boundaryQuery = """
+                SELECT id FROM url_checks
+                WHERE url_id = ?
+                ORDER BY id
+                LIMIT 1 OFFSET ?
+                """;
+
+        RepositoryQueryEvent event = RepositoryQueryEvent.start("UrlCheckRepository.deleteOldestChecks");
+        try (Span span = Tracer.span("UrlCheckRepository.deleteOldestChecks");
+             Connection connection = connect(dataSource);
+             PreparedStatement boundary = connection.prepareStatement(boundaryQuery);
+             PreparedStatement delete = connection.prepareStatement(
+                     "DELETE FROM url_checks WHERE url_id = ? AND id <= ?")) {
+            boundary.setLong(1, urlId);
+            boundary.setInt(2, limit - 1);
+            long maxId = Long.MAX_VALUE;
+            try (ResultSet resultSet = boundary.executeQuery()) {
+                if (resultSet.next()) {
+                    maxId = resultSet.getLong(1);
+                }
+            }
+            delete.setLong(1, urlId);
+            delete.setLong(2, maxId);
+            int deleted = delete.executeUpdate();
+            markWrite();
+            event.finish(deleted);
+            return deleted;
+        }
+    }
+
+    // Полное время последних проверок — выборка для p50/p95 на странице сайта
+    @Override
+    public List<Long> findRecentTotalTimes(Long urlId, int limit) throws SQLException {
+        String query = """
+                SELECT total_time_ms FROM url_checks
+                WHERE url_id = ? AND total_time_ms IS NOT NULL
+                ORDER BY id DESC
+                LIMIT ?
+                """;
+
+        return queryList("UrlCheckRepository.findRecentTotalTimes", readSource(), query, preparedStatement -> {
+            preparedStatement.setLong(1, urlId);
+            preparedStatement.setInt(2, limit);
+        }, resultSet -> resultSet.getLong(1));
+    }
+
+    // Страница проверок с архивным телом по возрастанию id, начиная после afterId
+    @Override
+    public List<ArchivedCheck> findArchived(long afterId, int limit) throws SQLException {
+        String query = """
+                SELECT c.id, c.url_id, u.name, c.body_hash
+                FROM url_checks c JOIN urls u ON u.id = c.url_id
+                WHERE c.id > ? AND c.body_hash IS NOT NULL
+                ORDER BY c.id
+                LIMIT ?
+                """;
+
+        return queryList("UrlCheckRepository.findArchived", dataSource, query, preparedStatement -> {
+            preparedStatement.setLong(1, afterId);
+            preparedStatement.setInt(2, limit);
+        }, resultSet -> new ArchivedCheck(resultSet.getLong(1), resultSet.getLong(2), resultSet.getString(3),
+                resultSet.getString(4)));
+    }
+
+    @Override
+    public Optional<String> findBodyHash(Long id) throws SQLException {
+        String query = "SELECT body_hash FROM url_checks WHERE id = ? AND body_hash IS NOT NULL";
+
+        return queryOne("UrlCheckRepository.findBodyHash", readSource(), query,
+                preparedStatement -> preparedStatement.setLong(1, id), resultSet -> resultSet.getString(1));
+    }
+
+    // Обновление извлечённых полей пачкой после повторного разбора архивных тел
+    @Override
+    public void updateExtractedFields(List<UrlCheck> urlChecks) throws SQLException {
+        String query = "UPDATE url_checks SET title = ?, h1 = ?, description = ?, fields = ? WHERE id = ?";
+
+        RepositoryQueryEvent event = RepositoryQueryEvent.start("UrlCheckRepository.updateExtractedFields");
+        try (Span span = Tracer.span("UrlCheckRepository.updateExtractedFields");
+             Connection connection = connect(dataSource);
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            for (UrlCheck urlCheck : urlChecks) {
+                preparedStatement.setString(1, urlCheck.getTitle());
+                preparedStatement.setString(2, urlCheck.getH1());
+                preparedStatement.setString(3, urlCheck.getDescription());
+                preparedStatement.setString(4, RowMappers.writeFields(urlCheck.getFields()));
+                preparedStatement.setLong(5, urlCheck.getId());
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            event.finish(urlChecks.size());
+        }
+    }
+
+    @Override
+    public void truncate() throws SQLException {
+        // Оповещения ссылаются на id проверок, которые после сброса счётчика начнутся заново
+        try (Connection connection = connect(dataSource);
+             Statement statement = connection.createStatement()) {
+
+            statement.executeUpdate("TRUNCATE TABLE check_alerts RESTART IDENTITY");
+            statement.executeUpdate("TRUNCATE TABLE url_checks RESTART IDENTITY");
+
+        } catch (SQLException throwables) {
+            log.error(throwables.getMessage(), throwables);
+            throw new SQLException("Truncate task on table url_checks has failed!");
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package hexlet.code.repository;
+
+import hexlet.code.model.Url;
+import hexlet.code.profiling.RepositoryQueryEvent;
+import hexlet.code.tracing.Span;
+import hexlet.code.tracing.Tracer;
+import lombok.extern.slf4j.Slf4j;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+@Slf4j
+public final class JdbcUrlStore extends BaseRepository implements UrlStore {
+
+    @Override
+    public void save(Url url) {
+        String query = "INSERT INTO urls (name, created_at) VALUES (?, ?)";
+        Timestamp dayTime = new Timestamp(System.currentTimeMillis());
+
+        RepositoryQueryEvent event = RepositoryQueryEvent.start("UrlRepository.save");
+        try (Span span = Tracer.span("UrlRepository.save");
+             Connection connection = connect(dataSource);
+             PreparedStatement preparedStatement = connection
+                     .prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            preparedStatement.setString(1, url.getName());
+            preparedStatement.setTimestamp(2, dayTime);
+
+            log.debug("The query is {}", preparedStatement);
+            preparedStatement.executeUpdate();
+            markWrite();
+            try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    url.setId(generatedKeys.getLong(1));
+                }
+            }
+            event.finish(1);
+        } catch (SQLException throwables) {
+            log.debug("Insert failed: code {}, state {}, {}", throwables.getErrorCode(), throwables.getSQLState(),
+                    throwables.getMessage());
+            throw new RuntimeException("DB has not returned an id after attempt to save the entity!");
+        }
+    }
+
+    @Override
+    public Optional<Url> findByName(String name) throws SQLException {
+        String query = "SELECT " + RowMappers.URL_COLUMNS + " FROM urls WHERE name = ?";
+
+        try {
+            // Проверка на дубликат перед записью — только по основной БД
+            return queryOne("UrlRepository.findByName", dataSource, query,
+                    preparedStatement -> preparedStatement.setString(1, name),
+                    RowMappers.URL);
+        } catch (SQLException throwables) {
+            log.error(throwables.getMessage(), throwables);
+            throw new SQLException("Url with name " + name + " was now found");
+        }
+    }
+
+    @Override
+    public Optional<Url> findById(Long id) throws SQLException {
+        String query = "SELECT " + RowMappers.URL_COLUMNS + " FROM urls WHERE id = ?";
+
+        try {
+            return queryOne("UrlRepository.findById", readSource(), query,
+                    preparedStatement -> preparedStatement.setLong(1, id), RowMappers.URL);
+        } catch (SQLException throwables) {
+            log.error(throwables.getMessage(), throwables);
+            throw new SQLException("Url with id " + id + " was now found");
+        }
+    }
+
+    @Override
+    public List<Url> getUrls() throws SQLException {
+        String query = "SELECT " + RowMappers.URL_COLUMNS + " FROM urls";
+
+        try {
+            return queryList("UrlRepository.getUrls", readSource(), query, StatementBinder.NONE, RowMappers.URL);
+        } catch (SQLException throwables) {
+            log.error(throwables.getMessage(), throwables);
+            throw new SQLException("The entities were not found in DB!");
+        }
+    }
+
+    @Override
+    public void truncate() throws SQLException {
+        String query = "TRUNCATE TABLE urls RESTART IDENTITY";
+
+        try (Connection connection = connect(dataSource);
+             PreparedStatement preparedStatement = connection
+                     .prepareStatement(query)) {
+            preparedStatement.executeUpdate();
+        } catch (SQLException throwables) {
+            log.error(throwables.getMessage(), throwables);
+            throw new SQLException("Truncate task on table url has failed!");
+        }
+    }
+
+    @Override
+    public boolean delete(Long id) throws SQLException {
+        try {
+            return deleteWithChecks(List.of(id)).urls() > 0;
+        } catch (SQLException throwables) {
+            log.error(throwables.getMessage(), throwables);
+            throw new SQLException("The url entity with id " + id + " was not deleted");
+        }
+    }
+
+    @Override
+    public List<Long> findFailingSince(Timestamp cutoff, long afterId, int limit) throws SQLException {
+        String query = """
+                SELECT u.id FROM urls u
+                WHERE u.id > ? AND u.created_at < ?
+                  AND NOT EXISTS (SELECT 1 FROM url_checks c
+                                  WHERE c.url_id = u.id AND c.created_at >= ? AND c.status_code < 400)
+                ORDER BY u.id
+                LIMIT ?
+                """;
+
+        return queryList("UrlRepository.findFailingSince", dataSource, query, preparedStatement -> {
+            preparedStatement.setLong(1, afterId);
+            preparedStatement.setTimestamp(2, cutoff);
+            preparedStatement.setTimestamp(3, cutoff);
+            preparedStatement.setInt(4, limit);
+        }, resultSet -> resultSet.getLong(1));
+    }
+
+    // Проверки к этому моменту почти все удалены частями через deleteOldestChecks; здесь остаются
+    // только добавленные за время удаления, поэтому транзакция короткая. Оповещения о сменах сайта
+    // удаляются той же транзакцией: без сайта их нечем наполнить, а внешних ключей в схеме нет
+    @Override
+    public DeletedRows deleteWithChecks(List<Long> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return new DeletedRows(0, 0);
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        RepositoryQueryEvent event = RepositoryQueryEvent.start("UrlRepository.deleteWithChecks");
+        try (Span span = Tracer.span("UrlRepository.deleteWithChecks");
+             Connection connection = connect(dataSource)) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement deleteAlerts = connection.prepareStatement(
+                         "DELETE FROM check_alerts WHERE url_id IN (" + placeholders + ")");
+                 PreparedStatement deleteChecks = connection.prepareStatement(
+                         "DELETE FROM url_checks WHERE url_id IN (" + placeholders + ")");
+                 PreparedStatement deleteUrls = connection.prepareStatement(
+                         "DELETE FROM urls WHERE id IN (" + placeholders + ")")) {
+                for (int i = 0; i < ids.size(); i++) {
+                    deleteAlerts.setLong(i + 1, ids.get(i));
+                    deleteChecks.setLong(i + 1, ids.get(i));
+                    deleteUrls.setLong(i + 1, ids.get(i));
+                }
+                deleteAlerts.executeUpdate();
+                int checks = deleteChecks.executeUpdate();
+                int urls = deleteUrls.executeUpdate();
+                connection.commit();
+                markWrite();
+                event.finish(urls + checks);
+                return new DeletedRows(urls, checks);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package hexlet.code.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.model.UrlCheckSummary;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Мапперы читают колонки по индексу, поэтому список колонок и маппер объявлены рядом
+public final class RowMappers {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<LinkedHashMap<String, String>> FIELDS_TYPE = new TypeReference<>() { };
+
+    public static final String URL_COLUMNS = "id, name, created_at";
+
+    public static final RowMapper<Url> URL = resultSet -> {
+        Url url = new Url(resultSet.getString(2));
+        url.setId(resultSet.getLong(1));
+        url.setCreatedAt(resultSet.getTimestamp(3));
+        return url;
+    };
+
+    public static final String URL_CHECK_COLUMNS = "id, status_code, title, h1, description, created_at, url_id, "
+            + "connect_time_ms, ttfb_ms, total_time_ms, body_bytes, transfer_bytes, redirect_count, final_url, "
+            + "body_hash, broken_links_count, broken_links, fields, error";
+
+    public static final RowMapper<UrlCheck> URL_CHECK = resultSet -> {
+        UrlCheck urlCheck = new UrlCheck(
+                resultSet.getObject(2, Integer.class),
+                resultSet.getString(3),
+                resultSet.getString(4),
+                resultSet.getString(5),
+                resultSet.getLong(7));
+        urlCheck.setId(resultSet.getLong(1));
+        urlCheck.setCreatedAt(resultSet.getTimestamp(6));
+        urlCheck.setConnectTimeMs(resultSet.getObject(8, Long.class));
+        urlCheck.setTtfbMs(resultSet.getObject(9, Long.class));
+        urlCheck.setTotalTimeMs(resultSet.getObject(10, Long.class));
+        urlCheck.setBodyBytes(resultSet.getObject(11, Long.class));
+        urlCheck.setTransferBytes(resultSet.getObject(12, Long.class));
+        urlCheck.setRedirectCount(resultSet.getObject(13, Integer.class));
+        urlCheck.setFinalUrl(resultSet.getString(14));
+        urlCheck.setBodyHash(resultSet.getString(15));
+        urlCheck.setBrokenLinksCount(resultSet.getObject(16, Integer.class));
+        urlCheck.setBrokenLinks(resultSet.getString(17));
+        urlCheck.setFields(readFields(resultSet.getString(18)));
+        urlCheck.setError(resultSet.getString(19));
+        return urlCheck;
+    };
+
+    public static final String URL_CHECK_SUMMARY_COLUMNS = "id, url_id, status_code, created_at";
+
+    public static final RowMapper<UrlCheckSummary> URL_CHECK_SUMMARY = resultSet -> new UrlCheckSummary(
+            resultSet.getLong(1),
+            resultSet.getLong(2),
+            resultSet.getObject(3, Integer.class),
+            resultSet.getTimestamp(4));
+
+    private RowMappers() {
+    }
+
+    // Поля из правил извлечения хранятся JSON-объектом; у проверок, сделанных до правил, колонка пуста
+    static String writeFields(Map<String, String> fields) throws SQLException {
+        if (fields == null || fields.isEmpty()) {
+            return null;
+        }
+        try {
+            return MAPPER.writeValueAsString(fields);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Failed to serialize check fields", e);
+        }
+    }
+
+    static Map<String, String> readFields(String json) throws SQLException {
+        if (json == null || json.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return Collections.unmodifiableMap(MAPPER.readValue(json, FIELDS_TYPE));
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Failed to parse check fields", e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package hexlet.code.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface StatementBinder {
+    StatementBinder NONE = preparedStatement -> { };
+
+    void bind(PreparedStatement preparedStatement) throws SQLException;
+}
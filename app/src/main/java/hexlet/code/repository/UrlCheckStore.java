@@ -0,0 +1,48 @@
+package hexlet.code.repository;
+
+import hexlet.code.model.ArchivedCheck;
+import hexlet.code.model.CheckHistorySummary;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.model.UrlCheckSummary;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Хранилище проверок. Реализации: JdbcUrlCheckStore (H2/PostgreSQL) и встроенный журнал EmbeddedStore
+public interface UrlCheckStore {
+
+    void save(UrlCheck urlCheck) throws SQLException;
+
+    void saveAll(List<UrlCheck> urlChecks) throws SQLException;
+
+    Optional<UrlCheck> findLastCheckByUrlId(Long urlId) throws SQLException;
+
+    // Последняя проверка каждого сайта, ключ — url_id
+    Map<Long, UrlCheck> findLatestChecks() throws SQLException;
+
+    Map<Long, UrlCheckSummary> findLatestCheckSummaries() throws SQLException;
+
+    // Новые первыми
+    List<UrlCheck> getAllChecks(Long urlId) throws SQLException;
+
+    // Страница истории: проверки с id меньше beforeId (null — с самой новой), новые первыми
+    List<UrlCheck> findChecksPage(Long urlId, Long beforeId, int limit) throws SQLException;
+
+    CheckHistorySummary findHistorySummary(Long urlId) throws SQLException;
+
+    List<Long> findRecentTotalTimes(Long urlId, int limit) throws SQLException;
+
+    List<ArchivedCheck> findArchived(long afterId, int limit) throws SQLException;
+
+    Optional<String> findBodyHash(Long id) throws SQLException;
+
+    void updateExtractedFields(List<UrlCheck> urlChecks) throws SQLException;
+
+    // Удаляет не больше limit самых старых проверок сайта одной транзакцией; возвращает число удалённых
+    int deleteOldestChecks(Long urlId, int limit) throws SQLException;
+
+    // Удаляет все проверки и сбрасывает счётчик id
+    void truncate() throws SQLException;
+}
@@ -0,0 +1,35 @@
+package hexlet.code.repository;
+
+import hexlet.code.model.Url;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+// Хранилище сайтов. Реализации: JdbcUrlStore (H2/PostgreSQL) и встроенный журнал EmbeddedStore
+public interface UrlStore {
+
+    // Присваивает url id; при ошибке — RuntimeException, как и прежний UrlRepository.save
+    void save(Url url);
+
+    Optional<Url> findByName(String name) throws SQLException;
+
+    Optional<Url> findById(Long id) throws SQLException;
+
+    List<Url> getUrls() throws SQLException;
+
+    // Удаляет сайт вместе с его проверками
+    boolean delete(Long id) throws SQLException;
+
+    // Сайты с id больше afterId, существующие с cutoff и с тех пор ни разу не ответившие успешно
+    // (код ниже 400). Сюда попадают и сайты, у которых за это время есть только неудачные проверки
+    // без кода ответа или нет проверок вовсе; по возрастанию id, не больше limit
+    List<Long> findFailingSince(Timestamp cutoff, long afterId, int limit) throws SQLException;
+
+    // Одной транзакцией удаляет сайты и оставшиеся у них проверки
+    DeletedRows deleteWithChecks(List<Long> ids) throws SQLException;
+
+    // Удаляет все сайты и сбрасывает счётчик id
+    void truncate() throws SQLException;
+}
@@ -0,0 +1,982 @@
+package hexlet.code.repository.embedded;
+
+import hexlet.code.model.ArchivedCheck;
+import hexlet.code.model.CheckHistorySummary;
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.model.UrlCheckSummary;
+import hexlet.code.repository.DeletedRows;
+import hexlet.code.repository.UrlCheckStore;
+import hexlet.code.repository.UrlStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+// Встроенное хранилище без SQL: один журнал на диске, в который только дописываются записи
+//   длина(4) | тип(1) | данные | CRC32(4)
+// Сайты и последние проверки держатся в памяти в хеш-таблицах с ключами long; остальные проверки
+// читаются с диска по смещению. Изменение проверки — новая запись с тем же id, удаление — запись-маркер.
+// Устаревшие записи убирает уплотнение: живые записи переписываются в новый файл, который атомарно
+// заменяет старый. При открытии журнал читается целиком, оборванная последняя запись отрезается.
+@Slf4j
+public final class EmbeddedStore implements Closeable {
+
+    private static final byte URL = 1;
+    private static final byte URL_DELETE = 2;
+    private static final byte CHECK = 3;
+    private static final byte CHECK_DELETE = 4;
+    private static final byte TRUNCATE_URLS = 5;
+    private static final byte TRUNCATE_CHECKS = 6;
+    private static final byte SEQUENCES = 7;
+    // Длина и CRC вокруг тела записи
+    private static final int FRAME_BYTES = 8;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private final Path path;
+    private final boolean fsync;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ByteArrayOutputStream encodeBuffer = new ByteArrayOutputStream(1024);
+    private final DataOutputStream encoder = new DataOutputStream(encodeBuffer);
+
+    private FileChannel channel;
+    private long size;
+    private long liveBytes;
+    private long compactions;
+    private ScheduledExecutorService compactor;
+
+    private final LongObjectMap<UrlEntry> urls = new LongObjectMap<>();
+    private final Map<String, Long> urlIdsByName = new HashMap<>();
+    // id проверок по возрастанию и параллельно смещение и длина их записей; удалённые — смещение -1
+    private final LongList checkIds = new LongList(1024);
+    private final LongList checkOffsets = new LongList(1024);
+    private final LongList checkLengths = new LongList(1024);
+    private final LongObjectMap<LongList> checksByUrl = new LongObjectMap<>();
+    private final LongObjectMap<UrlCheck> latestByUrl = new LongObjectMap<>();
+    private long nextUrlId = 1;
+    private long nextCheckId = 1;
+    private int liveChecks;
+
+    private final UrlStore urlStore = new Urls();
+    private final UrlCheckStore urlCheckStore = new Checks();
+
+    private EmbeddedStore(Path path, boolean fsync) {
+        this.path = path;
+        this.fsync = fsync;
+    }
+
+    public static EmbeddedStore open(Path path, boolean fsync) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        EmbeddedStore store = new EmbeddedStore(path, fsync);
+        store.load();
+        log.info("Embedded store {} opened: {} urls, {} checks, {} bytes", path, store.urls.size(),
+                store.liveChecks, store.size);
+        return store;
+    }
+
+    public UrlStore urls() {
+        return urlStore;
+    }
+
+    public UrlCheckStore checks() {
+        return urlCheckStore;
+    }
+
+    // Фоновое уплотнение, когда устаревшие записи занимают больше garbageRatio журнала
+    public synchronized void startCompaction(long intervalSeconds, double garbageRatio, long minBytes) {
+        if (compactor != null || intervalSeconds <= 0) {
+            return;
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "embedded-store-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                compactIfNeeded(garbageRatio, minBytes);
+            } catch (IOException | RuntimeException e) {
+                log.error("Embedded store compaction failed", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public boolean compactIfNeeded(double garbageRatio, long minBytes) throws IOException {
+        lock.readLock().lock();
+        try {
+            if (size < minBytes || size == 0 || (size - liveBytes) / (double) size < garbageRatio) {
+                return false;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        compact();
+        return true;
+    }
+
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            long before = size;
+            Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+            try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                // Счётчики id сохраняются, чтобы id удалённых записей не выдавались повторно
+                writeFully(out, encodeSequences(nextUrlId, nextCheckId));
+                long[] ids = urls.keys();
+                Arrays.sort(ids);
+                for (long id : ids) {
+                    writeFully(out, encodeUrl(urls.get(id).url()));
+                }
+                for (int i = 0; i < checkIds.size(); i++) {
+                    long offset = checkOffsets.get(i);
+                    if (offset >= 0) {
+                        long length = checkLengths.get(i);
+                        long copied = 0;
+                        while (copied < length) {
+                            copied += channel.transferTo(offset + copied, length - copied, out);
+                        }
+                    }
+                }
+                out.force(true);
+            }
+            channel.close();
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            load();
+            compactions++;
+            log.info("Embedded store compacted from {} to {} bytes", before, size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("path", path.toString());
+            stats.put("urls", urls.size());
+            stats.put("checks", liveChecks);
+            stats.put("logBytes", size);
+            stats.put("liveBytes", liveBytes);
+            stats.put("garbageRatio", size == 0 ? 0 : Math.round((size - liveBytes) * 1000.0 / size) / 1000.0);
+            stats.put("compactions", compactions);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (compactor != null) {
+                compactor.shutdownNow();
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---- журнал ----
+
+    private void load() throws IOException {
+        urls.clear();
+        urlIdsByName.clear();
+        clearChecks();
+        nextUrlId = 1;
+        liveBytes = 0;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        long position = 0;
+        CRC32 crc = new CRC32();
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream input = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            while (position + FRAME_BYTES < fileSize) {
+                int length = input.readInt();
+                if (length <= 0 || position + FRAME_BYTES + length > fileSize) {
+                    break;
+                }
+                byte[] body = new byte[length];
+                input.readFully(body);
+                int checksum = input.readInt();
+                crc.reset();
+                crc.update(body);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(ByteBuffer.wrap(body), position, FRAME_BYTES + length);
+                position += FRAME_BYTES + length;
+            }
+        } catch (EOFException e) {
+            log.debug("Embedded store log ended inside a record at {}", position);
+        }
+        if (position < fileSize) {
+            log.warn("Embedded store {}: dropping {} bytes of incomplete data at offset {}",
+                    path, fileSize - position, position);
+            channel.truncate(position);
+        }
+        size = position;
+    }
+
+    // Применение записи к индексам; общее для чтения журнала при старте и для новых записей
+    private void apply(ByteBuffer body, long offset, int length) throws IOException {
+        byte type = body.get();
+        switch (type) {
+            case URL -> {
+                Url url = decodeUrl(body);
+                UrlEntry previous = urls.put(url.getId(), new UrlEntry(url, length));
+                if (previous != null) {
+                    liveBytes -= previous.length();
+                    urlIdsByName.remove(previous.url().getName());
+                }
+                urlIdsByName.put(url.getName(), url.getId());
+                liveBytes += length;
+                nextUrlId = Math.max(nextUrlId, url.getId() + 1);
+            }
+            case URL_DELETE -> {
+                UrlEntry previous = urls.remove(body.getLong());
+                if (previous != null) {
+                    liveBytes -= previous.length();
+                    urlIdsByName.remove(previous.url().getName());
+                }
+            }
+            case CHECK -> applyCheck(decodeCheck(body), offset, length);
+            case CHECK_DELETE -> removeCheck(body.getLong());
+            case TRUNCATE_URLS -> {
+                for (UrlEntry entry : urls.values()) {
+                    liveBytes -= entry.length();
+                }
+                urls.clear();
+                urlIdsByName.clear();
+                nextUrlId = 1;
+            }
+            case TRUNCATE_CHECKS -> {
+                for (int i = 0; i < checkIds.size(); i++) {
+                    liveBytes -= checkLengths.get(i);
+                }
+                clearChecks();
+            }
+            case SEQUENCES -> {
+                nextUrlId = Math.max(nextUrlId, body.getLong());
+                nextCheckId = Math.max(nextCheckId, body.getLong());
+            }
+            default -> throw new IOException("Unknown record type " + type + " at offset " + offset);
+        }
+    }
+
+    private void applyCheck(UrlCheck check, long offset, int length) {
+        long id = check.getId();
+        int index = checkIds.binarySearch(id);
+        if (index >= 0 && checkOffsets.get(index) >= 0) {
+            liveBytes -= checkLengths.get(index);
+            checkOffsets.set(index, offset);
+            checkLengths.set(index, length);
+        } else {
+            if (index >= 0) {
+                checkOffsets.set(index, offset);
+                checkLengths.set(index, length);
+            } else if (checkIds.isEmpty() || id > checkIds.last()) {
+                checkIds.add(id);
+                checkOffsets.add(offset);
+                checkLengths.add(length);
+            } else {
+                throw new IllegalStateException("Check ids must grow, got " + id + " after " + checkIds.last());
+            }
+            LongList ids = checksByUrl.get(check.getUrlId());
+            if (ids == null) {
+                ids = new LongList(4);
+                checksByUrl.put(check.getUrlId(), ids);
+            }
+            ids.add(id);
+            liveChecks++;
+        }
+        liveBytes += length;
+        UrlCheck latest = latestByUrl.get(check.getUrlId());
+        if (latest == null || latest.getId() <= id) {
+            latestByUrl.put(check.getUrlId(), check);
+        }
+        nextCheckId = Math.max(nextCheckId, id + 1);
+    }
+
+    private void removeCheck(long id) throws IOException {
+        int index = checkIds.binarySearch(id);
+        if (index < 0 || checkOffsets.get(index) < 0) {
+            return;
+        }
+        UrlCheck removed = readCheck(index);
+        liveBytes -= checkLengths.get(index);
+        checkOffsets.set(index, -1);
+        checkLengths.set(index, 0);
+        liveChecks--;
+        long urlId = removed.getUrlId();
+        LongList ids = checksByUrl.get(urlId);
+        ids.removeAt(ids.binarySearch(id));
+        if (ids.isEmpty()) {
+            checksByUrl.remove(urlId);
+            latestByUrl.remove(urlId);
+        } else if (latestByUrl.get(urlId).getId() == id) {
+            latestByUrl.put(urlId, readCheck(checkIds.binarySearch(ids.last())));
+        }
+    }
+
+    // Не было ли с cutoff ни одной успешной проверки; проверки читаются с новых
+    private boolean isFailingSince(long urlId, Timestamp cutoff) throws IOException {
+        LongList ids = checksByUrl.get(urlId);
+        for (int i = ids == null ? -1 : ids.size() - 1; i >= 0; i--) {
+            UrlCheck check = readCheck(checkIds.binarySearch(ids.get(i)));
+            if (check.getCreatedAt() == null || check.getCreatedAt().before(cutoff)) {
+                break;
+            }
+            if (check.isSuccessful()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void clearChecks() {
+        checkIds.clear();
+        checkOffsets.clear();
+        checkLengths.clear();
+        checksByUrl.clear();
+        latestByUrl.clear();
+        nextCheckId = 1;
+        liveChecks = 0;
+    }
+
+    // Дописывает записи одной операцией записи и применяет их к индексам
+    private void append(List<byte[]> records) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[records.size()];
+        long total = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(records.get(i));
+            total += buffers[i].remaining();
+        }
+        channel.position(size);
+        long written = 0;
+        while (written < total) {
+            written += channel.write(buffers);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+        long offset = size;
+        size += total;
+        for (byte[] record : records) {
+            apply(ByteBuffer.wrap(record, 4, record.length - FRAME_BYTES), offset, record.length);
+            offset += record.length;
+        }
+    }
+
+    private UrlCheck readCheck(int index) throws IOException {
+        long offset = checkOffsets.get(index);
+        int length = (int) checkLengths.get(index);
+        ByteBuffer record = ByteBuffer.allocate(length - FRAME_BYTES);
+        long position = offset + 4;
+        while (record.hasRemaining()) {
+            int read = channel.read(record, position + record.position());
+            if (read < 0) {
+                throw new EOFException("Check record at " + offset + " is truncated");
+            }
+        }
+        record.flip();
+        record.get();
+        return decodeCheck(record);
+    }
+
+    private static void writeFully(FileChannel out, byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    // ---- кодирование записей ----
+
+    private byte[] frame() throws IOException {
+        encoder.flush();
+        byte[] body = encodeBuffer.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return ByteBuffer.allocate(body.length + FRAME_BYTES)
+                .putInt(body.length)
+                .put(body)
+                .putInt((int) crc.getValue())
+                .array();
+    }
+
+    private byte[] encodeUrl(Url url) throws IOException {
+        encodeBuffer.reset();
+        encoder.writeByte(URL);
+        encoder.writeLong(url.getId());
+        writeString(url.getName());
+        encoder.writeLong(url.getCreatedAt() == null ? NO_TIMESTAMP : url.getCreatedAt().getTime());
+        return frame();
+    }
+
+    private byte[] encodeCheck(UrlCheck check) throws IOException {
+        encodeBuffer.reset();
+        encoder.writeByte(CHECK);
+        encoder.writeLong(check.getId());
+        encoder.writeLong(check.getUrlId());
+        // Коды ответа не бывают отрицательными, -1 — страница не загрузилась
+        encoder.writeInt(check.getStatusCode() == null ? -1 : check.getStatusCode());
+        writeString(check.getTitle());
+        writeString(check.getH1());
+        writeString(check.getDescription());
+        encoder.writeLong(check.getCreatedAt() == null ? NO_TIMESTAMP : check.getCreatedAt().getTime());
+        encoder.writeLong(orUnknown(check.getConnectTimeMs()));
+        encoder.writeLong(orUnknown(check.getTtfbMs()));
+        encoder.writeLong(orUnknown(check.getTotalTimeMs()));
+        encoder.writeLong(orUnknown(check.getBodyBytes()));
+        encoder.writeLong(orUnknown(check.getTransferBytes()));
+        encoder.writeInt(check.getRedirectCount() == null ? -1 : check.getRedirectCount());
+        writeString(check.getFinalUrl());
+        writeString(check.getBodyHash());
+        encoder.writeInt(check.getBrokenLinksCount() == null ? -1 : check.getBrokenLinksCount());
+        writeString(check.getBrokenLinks());
+        Map<String, String> fields = check.getFields() == null ? Map.of() : check.getFields();
+        encoder.writeInt(fields.size());
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            writeString(field.getKey());
+            writeString(field.getValue());
+        }
+        writeString(check.getError());
+        return frame();
+    }
+
+    private byte[] encodeMarker(byte type, long id) throws IOException {
+        encodeBuffer.reset();
+        encoder.writeByte(type);
+        encoder.writeLong(id);
+        return frame();
+    }
+
+    private byte[] encodeTruncate(byte type) throws IOException {
+        encodeBuffer.reset();
+        encoder.writeByte(type);
+        return frame();
+    }
+
+    private byte[] encodeSequences(long urlId, long checkId) throws IOException {
+        encodeBuffer.reset();
+        encoder.writeByte(SEQUENCES);
+        encoder.writeLong(urlId);
+        encoder.writeLong(checkId);
+        return frame();
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            encoder.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        encoder.writeInt(bytes.length);
+        encoder.write(bytes);
+    }
+
+    // Замеры не бывают отрицательными, -1 означает «не измерялось»
+    private static long orUnknown(Long measure) {
+        return measure == null ? -1 : measure;
+    }
+
+    private static Long readMeasure(ByteBuffer body) {
+        long measure = body.getLong();
+        return measure < 0 ? null : measure;
+    }
+
+    private static Url decodeUrl(ByteBuffer body) {
+        long id = body.getLong();
+        Url url = new Url(readString(body));
+        url.setId(id);
+        url.setCreatedAt(readTimestamp(body));
+        return url;
+    }
+
+    private static UrlCheck decodeCheck(ByteBuffer body) {
+        long id = body.getLong();
+        long urlId = body.getLong();
+        int status = body.getInt();
+        Integer statusCode = status < 0 ? null : status;
+        UrlCheck check = new UrlCheck(statusCode, readString(body), readString(body), readString(body), urlId);
+        check.setId(id);
+        check.setCreatedAt(readTimestamp(body));
+        check.setConnectTimeMs(readMeasure(body));
+        check.setTtfbMs(readMeasure(body));
+        check.setTotalTimeMs(readMeasure(body));
+        check.setBodyBytes(readMeasure(body));
+        check.setTransferBytes(readMeasure(body));
+        int redirectCount = body.getInt();
+        check.setRedirectCount(redirectCount < 0 ? null : redirectCount);
+        check.setFinalUrl(readString(body));
+        check.setBodyHash(readString(body));
+        // Записи, сделанные до появления проверки ссылок, заканчиваются на bodyHash
+        if (body.hasRemaining()) {
+            int brokenLinksCount = body.getInt();
+            check.setBrokenLinksCount(brokenLinksCount < 0 ? null : brokenLinksCount);
+            check.setBrokenLinks(readString(body));
+        }
+        // ...а сделанные до правил извлечения — на brokenLinks
+        if (body.hasRemaining()) {
+            int count = body.getInt();
+            Map<String, String> fields = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                fields.put(readString(body), readString(body));
+            }
+            check.setFields(Collections.unmodifiableMap(fields));
+        }
+        // ...а сделанные до записи неудачных проверок — на полях
+        if (body.hasRemaining()) {
+            check.setError(readString(body));
+        }
+        return check;
+    }
+
+    private static String readString(ByteBuffer body) {
+        int length = body.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(body.array(), body.arrayOffset() + body.position(), length,
+                StandardCharsets.UTF_8);
+        body.position(body.position() + length);
+        return value;
+    }
+
+    private static Timestamp readTimestamp(ByteBuffer body) {
+        long millis = body.getLong();
+        return millis == NO_TIMESTAMP ? null : new Timestamp(millis);
+    }
+
+    // Наружу отдаются копии: объекты в индексах не должны меняться вызывающим кодом
+    private static Url copy(Url url) {
+        Url copy = new Url(url.getName());
+        copy.setId(url.getId());
+        copy.setCreatedAt(url.getCreatedAt());
+        return copy;
+    }
+
+    private static UrlCheck copy(UrlCheck check) {
+        UrlCheck copy = new UrlCheck(check.getStatusCode(), check.getTitle(), check.getH1(),
+                check.getDescription(), check.getUrlId());
+        copy.setId(check.getId());
+        copy.setCreatedAt(check.getCreatedAt());
+        copy.setConnectTimeMs(check.getConnectTimeMs());
+        copy.setTtfbMs(check.getTtfbMs());
+        copy.setTotalTimeMs(check.getTotalTimeMs());
+        copy.setBodyBytes(check.getBodyBytes());
+        copy.setTransferBytes(check.getTransferBytes());
+        copy.setRedirectCount(check.getRedirectCount());
+        copy.setFinalUrl(check.getFinalUrl());
+        copy.setBodyHash(check.getBodyHash());
+        copy.setBrokenLinksCount(check.getBrokenLinksCount());
+        copy.setBrokenLinks(check.getBrokenLinks());
+        copy.setFields(check.getFields() == null ? Map.of() : Collections.unmodifiableMap(
+                new LinkedHashMap<>(check.getFields())));
+        copy.setError(check.getError());
+        return copy;
+    }
+
+    private record UrlEntry(Url url, int length) {
+    }
+
+    // ---- реализации интерфейсов хранилища ----
+
+    private final class Urls implements UrlStore {
+
+        @Override
+        public void save(Url url) {
+            lock.writeLock().lock();
+            try {
+                Url stored = copy(url);
+                stored.setId(nextUrlId);
+                stored.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+                append(List.of(encodeUrl(stored)));
+                url.setId(stored.getId());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Embedded store has failed to save the url", e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public Optional<Url> findByName(String name) {
+            lock.readLock().lock();
+            try {
+                Long id = urlIdsByName.get(name);
+                return id == null ? Optional.empty() : Optional.of(copy(urls.get(id).url()));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Optional<Url> findById(Long id) {
+            lock.readLock().lock();
+            try {
+                UrlEntry entry = id == null ? null : urls.get(id);
+                return entry == null ? Optional.empty() : Optional.of(copy(entry.url()));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public List<Url> getUrls() {
+            lock.readLock().lock();
+            try {
+                long[] ids = urls.keys();
+                Arrays.sort(ids);
+                List<Url> result = new ArrayList<>(ids.length);
+                for (long id : ids) {
+                    result.add(copy(urls.get(id).url()));
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean delete(Long id) throws SQLException {
+            return deleteWithChecks(List.of(id)).urls() > 0;
+        }
+
+        @Override
+        public List<Long> findFailingSince(Timestamp cutoff, long afterId, int limit) throws SQLException {
+            lock.readLock().lock();
+            try {
+                long[] ids = urls.keys();
+                Arrays.sort(ids);
+                List<Long> result = new ArrayList<>();
+                for (int i = 0; i < ids.length && result.size() < limit; i++) {
+                    Timestamp createdAt = urls.get(ids[i]).url().getCreatedAt();
+                    if (ids[i] > afterId && createdAt != null && createdAt.before(cutoff)
+                            && isFailingSince(ids[i], cutoff)) {
+                        result.add(ids[i]);
+                    }
+                }
+                return result;
+            } catch (IOException e) {
+                throw new SQLException("Embedded store has failed to read checks", e);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public DeletedRows deleteWithChecks(List<Long> ids) throws SQLException {
+            lock.writeLock().lock();
+            try {
+                List<byte[]> records = new ArrayList<>();
+                int deletedUrls = 0;
+                for (Long id : ids) {
+                    LongList checkIdsOfUrl = checksByUrl.get(id);
+                    for (int i = 0; checkIdsOfUrl != null && i < checkIdsOfUrl.size(); i++) {
+                        records.add(encodeMarker(CHECK_DELETE, checkIdsOfUrl.get(i)));
+                    }
+                    if (urls.containsKey(id)) {
+                        records.add(encodeMarker(URL_DELETE, id));
+                        deletedUrls++;
+                    }
+                }
+                if (!records.isEmpty()) {
+                    append(records);
+                }
+                return new DeletedRows(deletedUrls, records.size() - deletedUrls);
+            } catch (IOException e) {
+                throw new SQLException("Embedded store has failed to delete urls " + ids, e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public void truncate() throws SQLException {
+            lock.writeLock().lock();
+            try {
+                append(List.of(encodeTruncate(TRUNCATE_URLS)));
+            } catch (IOException e) {
+                throw new SQLException("Embedded store has failed to truncate urls", e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private final class Checks implements UrlCheckStore {
+
+        @Override
+        public void save(UrlCheck urlCheck) throws SQLException {
+            saveAll(List.of(urlCheck));
+        }
+
+        @Override
+        public void saveAll(List<UrlCheck> urlChecks) throws SQLException {
+            if (urlChecks.isEmpty()) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                Timestamp now = new Timestamp(System.currentTimeMillis());
+                List<byte[]> records = new ArrayList<>(urlChecks.size());
+                long id = nextCheckId;
+                for (UrlCheck urlCheck : urlChecks) {
+                    UrlCheck stored = copy(urlCheck);
+                    stored.setId(id++);
+                    stored.setCreatedAt(now);
+                    records.add(encodeCheck(stored));
+                }
+                append(records);
+                id = nextCheckId - urlChecks.size();
+                for (UrlCheck urlCheck : urlChecks) {
+                    urlCheck.setId(id++);
+                }
+            } catch (IOException e) {
+                throw new SQLException("Embedded store has failed to save checks", e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public Optional<UrlCheck> findLastCheckByUrlId(Long urlId) {
+            lock.readLock().lock();
+            try {
+                UrlCheck latest = latestByUrl.get(urlId);
+                return latest == null ? Optional.empty() : Optional.of(copy(latest));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Map<Long, UrlCheck> findLatestChecks() {
+            lock.readLock().lock();
+            try {
+                Map<Long, UrlCheck> result = new HashMap<>();
+                for (UrlCheck check : latestByUrl.values()) {
+                    result.put(check.getUrlId(), copy(check));
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Map<Long, UrlCheckSummary> findLatestCheckSummaries() {
+            lock.readLock().lock();
+            try {
+                Map<Long, UrlCheckSummary> result = new HashMap<>();
+                for (UrlCheck check : latestByUrl.values()) {
+                    result.put(check.getUrlId(), new UrlCheckSummary(check.getId(), check.getUrlId(),
+                            check.getStatusCode(), check.getCreatedAt()));
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public List<UrlCheck> getAllChecks(Long urlId) throws SQLException {
+            return findChecksPage(urlId, null, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public List<UrlCheck> findChecksPage(Long urlId, Long beforeId, int limit) throws SQLException {
+            lock.readLock().lock();
+            try {
+                LongList ids = checksByUrl.get(urlId);
+                List<UrlCheck> result = new ArrayList<>();
+                if (ids == null) {
+                    return result;
+                }
+                int end = ids.size();
+                if (beforeId != null) {
+                    int index = ids.binarySearch(beforeId);
+                    end = index >= 0 ? index : -index - 1;
+                }
+                for (int i = end - 1; i >= 0 && result.size() < limit; i--) {
+                    result.add(readCheck(checkIds.binarySearch(ids.get(i))));
+                }
+                return result;
+            } catch (IOException e) {
+                throw new SQLException("Embedded store has failed to read checks of url " + urlId, e);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public CheckHistorySummary findHistorySummary(Long urlId) {
+            lock.readLock().lock();
+            try {
+                LongList ids = checksByUrl.get(urlId);
+                UrlCheck latest = latestByUrl.get(urlId);
+                if (ids == null || latest == null) {
+                    return new CheckHistorySummary(0, null);
+                }
+                return new CheckHistorySummary(ids.size(), new UrlCheckSummary(latest.getId(), latest.getUrlId(),
+                        latest.getStatusCode(), latest.getCreatedAt()));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public List<Long> findRecentTotalTimes(Long urlId, int limit) throws SQLException {
+            List<Long> result = new ArrayList<>();
+            for (UrlCheck check : findChecksPage(urlId, null, limit)) {
+                if (check.getTotalTimeMs() != null) {
+                    result.add(check.getTotalTimeMs());
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public List<ArchivedCheck> findArchived(long afterId, int limit) throws SQLException {
+            lock.readLock().lock();
+            try {
+                int index = checkIds.binarySearch(afterId);
+                index = index >= 0 ? index + 1 : -index - 1;
+                List<ArchivedCheck> result = new ArrayList<>();
+                for (; index < checkIds.size() && result.size() < limit; index++) {
+                    if (checkOffsets.get(index) < 0) {
+                        continue;
+                    }
+                    UrlCheck check = readCheck(index);
+                    UrlEntry url = urls.get(check.getUrlId());
+                    if (check.getBodyHash() != null && url != null) {
+                        result.add(new ArchivedCheck(check.getId(), check.getUrlId(), url.url().getName(),
+                                check.getBodyHash()));
+                    }
+                }
+                return result;
+            } catch (IOException e) {
+                throw new SQLException("Embedded store has failed to read checks", e);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Optional<String> findBodyHash(Long id) throws SQLException {
+            lock.readLock().lock();
+            try {
+                int index = checkIds.binarySearch(id);
+                if (index < 0 || checkOffsets.get(index) < 0) {
+                    return Optional.empty();
+                }
+                return Optional.ofNullable(readCheck(index).getBodyHash());
+            } catch (IOException e) {
+                throw new SQLException("Embedded store has failed to read check " + id, e);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void updateExtractedFields(List<UrlCheck> urlChecks) throws SQLException {
+            lock.writeLock().lock();
+            try {
+                List<byte[]> records = new ArrayList<>(urlChecks.size());
+                for (UrlCheck urlCheck : urlChecks) {
+                    int index = checkIds.binarySearch(urlCheck.getId());
+                    if (index < 0 || checkOffsets.get(index) < 0) {
+                        continue;
+                    }
+                    UrlCheck stored = readCheck(index);
+                    stored.setTitle(urlCheck.getTitle());
+                    stored.setH1(urlCheck.getH1());
+                    stored.setDescription(urlCheck.getDescription());
+                    stored.setFields(urlCheck.getFields());
+                    records.add(encodeCheck(stored));
+                }
+                if (!records.isEmpty()) {
+                    append(records);
+                }
+            } catch (IOException e) {
+                throw new SQLException("Embedded store has failed to update checks", e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public int deleteOldestChecks(Long urlId, int limit) throws SQLException {
+            lock.writeLock().lock();
+            try {
+                LongList ids = checksByUrl.get(urlId);
+                if (ids == null) {
+                    return 0;
+                }
+                int count = Math.min(limit, ids.size());
+                List<byte[]> records = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    records.add(encodeMarker(CHECK_DELETE, ids.get(i)));
+                }
+                append(records);
+                return count;
+            } catch (IOException e) {
+                throw new SQLException("Embedded store has failed to delete checks of url " + urlId, e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public void truncate() throws SQLException {
+            lock.writeLock().lock();
+            try {
+                append(List.of(encodeTruncate(TRUNCATE_CHECKS)));
+            } catch (IOException e) {
+                throw new SQLException("Embedded store has failed to truncate checks", e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
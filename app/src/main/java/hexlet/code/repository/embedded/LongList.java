@@ -0,0 +1,64 @@
+package hexlet.code.repository.embedded;
+
+import java.util.Arrays;
+
+// Растущий массив long без упаковки в Long
+final class LongList {
+    private long[] values;
+    private int size;
+
+    LongList() {
+        this(8);
+    }
+
+    LongList(int capacity) {
+        values = new long[Math.max(capacity, 1)];
+    }
+
+    void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return values[index];
+    }
+
+    void set(int index, long value) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        values[index] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long last() {
+        return values[size - 1];
+    }
+
+    // Для списка, отсортированного по возрастанию: индекс или -(точка вставки) - 1
+    int binarySearch(long value) {
+        return Arrays.binarySearch(values, 0, size, value);
+    }
+
+    void removeAt(int index) {
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,55 @@
+package hexlet.code.tracing;
+
+// Участок трассировки. Закрывается через try-with-resources и при закрытии добавляется в свою трассу.
+public final class Span implements AutoCloseable {
+    // Возвращается, когда трассировка выключена или у потока нет трассы: ничего не пишет и не аллоцируется
+    static final Span NOOP = new Span(null, null, 0, 0, false);
+
+    private final Trace trace;
+    private final String name;
+    private final long startNanos;
+    private final int depth;
+    // Участок открыт в потоке-владельце трассы и участвует в подсчёте вложенности
+    private final boolean nested;
+    private long durationNanos;
+
+    Span(Trace trace, String name, long startNanos, int depth, boolean nested) {
+        this.trace = trace;
+        this.name = name;
+        this.startNanos = startNanos;
+        this.depth = depth;
+        this.nested = nested;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    void setDurationNanos(long durationNanos) {
+        this.durationNanos = durationNanos;
+    }
+
+    @Override
+    public void close() {
+        if (trace == null) {
+            return;
+        }
+        durationNanos = System.nanoTime() - startNanos;
+        if (nested) {
+            trace.exit();
+        }
+        trace.add(this);
+    }
+}
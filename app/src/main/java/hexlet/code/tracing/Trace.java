@@ -0,0 +1,94 @@
+package hexlet.code.tracing;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Трасса одного запроса. Участки могут добавлять и другие потоки (стадии конвейера проверок),
+// поэтому список защищён монитором трассы; конкуренции почти нет.
+public final class Trace {
+    private final long id;
+    private final String name;
+    private final long startedAtMillis = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final int maxSpans;
+    private final List<Span> spans = new ArrayList<>();
+    private int droppedSpans;
+    private volatile long durationNanos = -1;
+    private volatile int status;
+    // Глубина вложенности участков в потоке-владельце трассы
+    private int depth;
+
+    Trace(long id, String name, int maxSpans) {
+        this.id = id;
+        this.name = name;
+        this.maxSpans = maxSpans;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    int enter() {
+        return depth++;
+    }
+
+    void exit() {
+        depth--;
+    }
+
+    synchronized void add(Span span) {
+        if (spans.size() < maxSpans) {
+            spans.add(span);
+        } else {
+            droppedSpans++;
+        }
+    }
+
+    void finish() {
+        durationNanos = System.nanoTime() - startNanos;
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", id);
+        result.put("name", name);
+        result.put("status", status);
+        result.put("startedAt", Instant.ofEpochMilli(startedAtMillis).toString());
+        result.put("durationMs", toMillis(durationNanos));
+        List<Span> ordered = new ArrayList<>(spans);
+        ordered.sort((left, right) -> Long.compare(left.getStartNanos(), right.getStartNanos()));
+        List<Map<String, Object>> spanMaps = new ArrayList<>(ordered.size());
+        for (Span span : ordered) {
+            Map<String, Object> spanMap = new LinkedHashMap<>();
+            spanMap.put("name", span.getName());
+            spanMap.put("depth", span.getDepth());
+            spanMap.put("offsetMs", toMillis(span.getStartNanos() - startNanos));
+            spanMap.put("durationMs", toMillis(span.getDurationNanos()));
+            spanMaps.add(spanMap);
+        }
+        result.put("spans", spanMaps);
+        if (droppedSpans > 0) {
+            result.put("droppedSpans", droppedSpans);
+        }
+        return result;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
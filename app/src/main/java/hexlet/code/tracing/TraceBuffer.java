@@ -0,0 +1,88 @@
+package hexlet.code.tracing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Хранилище завершённых трасс без блокировок: кольцо последних N и отдельный набор самых медленных.
+// Запись в кольцо — один getAndIncrement и одна запись в слот; старые трассы просто перезаписываются.
+final class TraceBuffer {
+    private final AtomicReferenceArray<Trace> recent;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicReferenceArray<Trace> slowest;
+
+    TraceBuffer(int recentSize, int slowestSize) {
+        this.recent = new AtomicReferenceArray<>(recentSize);
+        this.slowest = new AtomicReferenceArray<>(slowestSize);
+    }
+
+    void add(Trace trace) {
+        long position = cursor.getAndIncrement();
+        recent.set((int) (position % recent.length()), trace);
+        retainIfSlow(trace);
+    }
+
+    // Вытесняем самую быструю из сохранённых, если новая медленнее; при гонке за слот повторяем
+    private void retainIfSlow(Trace trace) {
+        while (true) {
+            int fastestIndex = -1;
+            Trace fastest = null;
+            for (int i = 0; i < slowest.length(); i++) {
+                Trace current = slowest.get(i);
+                if (current == null) {
+                    fastestIndex = i;
+                    fastest = null;
+                    break;
+                }
+                if (fastest == null || current.getDurationNanos() < fastest.getDurationNanos()) {
+                    fastestIndex = i;
+                    fastest = current;
+                }
+            }
+            if (fastestIndex < 0 || (fastest != null && fastest.getDurationNanos() >= trace.getDurationNanos())) {
+                return;
+            }
+            if (slowest.compareAndSet(fastestIndex, fastest, trace)) {
+                return;
+            }
+        }
+    }
+
+    // Последние трассы, новые первыми
+    List<Trace> recent(int limit) {
+        List<Trace> result = new ArrayList<>();
+        long end = cursor.get();
+        long start = Math.max(0, end - recent.length());
+        for (long position = end - 1; position >= start && result.size() < limit; position--) {
+            Trace trace = recent.get((int) (position % recent.length()));
+            if (trace != null) {
+                result.add(trace);
+            }
+        }
+        return result;
+    }
+
+    // Самые медленные, по убыванию длительности
+    List<Trace> slowest() {
+        List<Trace> result = new ArrayList<>();
+        for (int i = 0; i < slowest.length(); i++) {
+            Trace trace = slowest.get(i);
+            if (trace != null) {
+                result.add(trace);
+            }
+        }
+        result.sort(Comparator.comparingLong(Trace::getDurationNanos).reversed());
+        return result;
+    }
+
+    void clear() {
+        for (int i = 0; i < recent.length(); i++) {
+            recent.set(i, null);
+        }
+        for (int i = 0; i < slowest.length(); i++) {
+            slowest.set(i, null);
+        }
+    }
+}
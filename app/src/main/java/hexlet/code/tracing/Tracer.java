@@ -0,0 +1,97 @@
+package hexlet.code.tracing;
+
+import hexlet.code.util.Env;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Лёгкая трассировка запросов. Трасса привязана к потоку запроса через ThreadLocal;
+// участки в других потоках (стадии проверки) добавляются явно через span(trace, name) и record.
+// Без текущей трассы или с выключенной трассировкой span() возвращает общий пустой участок.
+public final class Tracer {
+
+    private static final int MAX_SPANS = Env.getInt("TRACING_MAX_SPANS", 256);
+    private static final TraceBuffer BUFFER = new TraceBuffer(
+            Env.getInt("TRACING_BUFFER_SIZE", 512),
+            Env.getInt("TRACING_SLOWEST_SIZE", 32));
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private static volatile boolean enabled = Env.getBoolean("TRACING_ENABLED", true);
+
+    private Tracer() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static void startTrace(String name) {
+        if (enabled) {
+            CURRENT.set(new Trace(IDS.incrementAndGet(), name, MAX_SPANS));
+        }
+    }
+
+    // Завершает трассу текущего потока и кладёт её в буфер
+    public static void finishTrace(int status) {
+        Trace trace = CURRENT.get();
+        if (trace == null) {
+            return;
+        }
+        CURRENT.remove();
+        trace.setStatus(status);
+        trace.finish();
+        BUFFER.add(trace);
+    }
+
+    // Трасса текущего потока, чтобы передать её в другой поток; null, если трассы нет
+    public static Trace current() {
+        return CURRENT.get();
+    }
+
+    // Есть ли трасса у текущего потока: по нему вызывающий решает, стоит ли собирать имя участка
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    public static Span span(String name) {
+        Trace trace = CURRENT.get();
+        if (trace == null) {
+            return Span.NOOP;
+        }
+        return new Span(trace, name, System.nanoTime(), trace.enter(), true);
+    }
+
+    public static Span span(Trace trace, String name) {
+        if (trace == null) {
+            return Span.NOOP;
+        }
+        return new Span(trace, name, System.nanoTime(), 1, false);
+    }
+
+    // Уже прошедший интервал, например ожидание в очереди
+    public static void record(Trace trace, String name, long startNanos, long endNanos) {
+        if (trace == null) {
+            return;
+        }
+        Span span = new Span(trace, name, startNanos, 1, false);
+        span.setDurationNanos(endNanos - startNanos);
+        trace.add(span);
+    }
+
+    public static List<Trace> recent(int limit) {
+        return BUFFER.recent(limit);
+    }
+
+    public static List<Trace> slowest() {
+        return BUFFER.slowest();
+    }
+
+    public static void clear() {
+        BUFFER.clear();
+    }
+}
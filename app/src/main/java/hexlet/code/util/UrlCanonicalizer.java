@@ -0,0 +1,241 @@
+package hexlet.code.util;
+
+import java.io.ByteArrayOutputStream;
+import java.net.IDN;
+import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+
+// Приводит введённый адрес к виду "схема://хост[:порт]" — так сайты хранятся в таблице urls.
+// Один проход по строке без регулярных выражений и без разбора через URI: схема без учёта регистра,
+// userinfo, путь, запрос и фрагмент отбрасываются, порт по умолчанию убирается. Хост раскодируется
+// из %XX, переводится в punycode (IDN), приводится к нижнему регистру и теряет завершающую точку;
+// с URL_STRIP_WWW=true ещё и префикс www. Для обычного ASCII-адреса выделяется только строка результата.
+public final class UrlCanonicalizer {
+
+    private static final boolean STRIP_WWW = Env.getBoolean("URL_STRIP_WWW", false);
+    private static final String HTTP = "http://";
+    private static final String HTTPS = "https://";
+    private static final int MAX_PORT = 65_535;
+    private static final int MAX_LABEL = 63;
+    private static final int MAX_HOST = 253;
+    private static final String WWW = "www.";
+
+    private UrlCanonicalizer() {
+    }
+
+    public static String canonicalize(String input) throws MalformedURLException {
+        return canonicalize(input, STRIP_WWW);
+    }
+
+    public static String canonicalize(String input, boolean stripWww) throws MalformedURLException {
+        int start = 0;
+        int end = input.length();
+        while (start < end && input.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && input.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        boolean https;
+        if (input.regionMatches(true, start, HTTPS, 0, HTTPS.length())) {
+            https = true;
+            start += HTTPS.length();
+        } else if (input.regionMatches(true, start, HTTP, 0, HTTP.length())) {
+            https = false;
+            start += HTTP.length();
+        } else {
+            throw new MalformedURLException("URL должен начинаться с http:// или https://");
+        }
+
+        // Граница authority; обратная косая черта завершает её так же, как в браузерах
+        int authorityEnd = start;
+        int hostStart = start;
+        while (authorityEnd < end) {
+            char c = input.charAt(authorityEnd);
+            if (c == '/' || c == '?' || c == '#' || c == '\\') {
+                break;
+            }
+            if (c == '@') {
+                hostStart = authorityEnd + 1;
+            }
+            authorityEnd++;
+        }
+
+        int hostEnd = authorityEnd;
+        int port = -1;
+        if (hostStart < authorityEnd && input.charAt(hostStart) == '[') {
+            int close = input.indexOf(']', hostStart);
+            if (close < 0 || close >= authorityEnd) {
+                throw new MalformedURLException("Некорректный адрес IPv6");
+            }
+            hostEnd = close + 1;
+            if (hostEnd < authorityEnd) {
+                if (input.charAt(hostEnd) != ':') {
+                    throw new MalformedURLException("Некорректный адрес IPv6");
+                }
+                port = parsePort(input, hostEnd + 1, authorityEnd);
+            }
+        } else {
+            int colon = input.lastIndexOf(':', authorityEnd - 1);
+            if (colon >= hostStart) {
+                hostEnd = colon;
+                port = parsePort(input, colon + 1, authorityEnd);
+            }
+        }
+        if (port == (https ? 443 : 80)) {
+            port = -1;
+        }
+
+        StringBuilder result = new StringBuilder(HTTPS.length() + (hostEnd - hostStart) + 6);
+        result.append(https ? HTTPS : HTTP);
+        if (hostStart < hostEnd && input.charAt(hostStart) == '[') {
+            appendIpv6(result, input, hostStart, hostEnd);
+        } else if (isPlainHost(input, hostStart, hostEnd)) {
+            appendHost(result, input, hostStart, hostEnd, stripWww);
+        } else {
+            String host = decodeHost(input, hostStart, hostEnd);
+            appendHost(result, host, 0, host.length(), stripWww);
+        }
+        if (port != -1) {
+            result.append(':').append(port);
+        }
+        return result.toString();
+    }
+
+    // Пустой порт ("host:") допустим и означает порт по умолчанию
+    private static int parsePort(String input, int from, int to) throws MalformedURLException {
+        if (from == to) {
+            return -1;
+        }
+        int port = 0;
+        for (int i = from; i < to; i++) {
+            char c = input.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new MalformedURLException("Некорректный порт");
+            }
+            port = port * 10 + (c - '0');
+            if (port > MAX_PORT) {
+                throw new MalformedURLException("Некорректный порт");
+            }
+        }
+        if (port == 0) {
+            throw new MalformedURLException("Некорректный порт");
+        }
+        return port;
+    }
+
+    // Быстрый путь: хост уже в нижнем регистре, ASCII и без %-кодирования
+    private static boolean isPlainHost(String input, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = input.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '.' || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Медленный путь: %XX -> UTF-8, затем punycode для не-ASCII меток. Регистр приводит appendHost
+    private static String decodeHost(String input, int from, int to) throws MalformedURLException {
+        String host = input.substring(from, to);
+        if (host.indexOf('%') >= 0) {
+            host = percentDecode(host);
+        }
+        for (int i = 0; i < host.length(); i++) {
+            if (host.charAt(i) > 0x7F) {
+                try {
+                    return IDN.toASCII(host, IDN.ALLOW_UNASSIGNED);
+                } catch (IllegalArgumentException e) {
+                    throw new MalformedURLException("Некорректный хост: " + e.getMessage());
+                }
+            }
+        }
+        return host;
+    }
+
+    private static String percentDecode(String host) throws MalformedURLException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(host.length());
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if (c == '%') {
+                int high = i + 2 < host.length() ? Character.digit(host.charAt(i + 1), 16) : -1;
+                int low = high >= 0 ? Character.digit(host.charAt(i + 2), 16) : -1;
+                if (low < 0) {
+                    throw new MalformedURLException("Некорректное %-кодирование в хосте");
+                }
+                bytes.write(high << 4 | low);
+                i += 2;
+            } else if (c < 0x80) {
+                bytes.write(c);
+            } else {
+                int codePoint = host.codePointAt(i);
+                byte[] encoded = Character.toString(codePoint).getBytes(StandardCharsets.UTF_8);
+                bytes.write(encoded, 0, encoded.length);
+                i += Character.charCount(codePoint) - 1;
+            }
+        }
+        try {
+            return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes.toByteArray())).toString();
+        } catch (CharacterCodingException e) {
+            throw new MalformedURLException("Хост после %-декодирования не в UTF-8");
+        }
+    }
+
+    // Проверяет метки (1..63 символа из [a-z0-9-_], всего до 253) и дописывает хост в нижнем регистре
+    // без завершающей точки
+    private static void appendHost(StringBuilder result, String host, int from, int to, boolean stripWww)
+            throws MalformedURLException {
+        if (to > from && host.charAt(to - 1) == '.') {
+            to--;
+        }
+        if (from == to || to - from > MAX_HOST) {
+            throw new MalformedURLException("Невалидный URL");
+        }
+        int labelStart = from;
+        for (int i = from; i <= to; i++) {
+            char c = i < to ? host.charAt(i) : '.';
+            if (c == '.') {
+                if (i == labelStart || i - labelStart > MAX_LABEL) {
+                    throw new MalformedURLException("Некорректный хост");
+                }
+                labelStart = i + 1;
+            } else if (!isLabelChar(c)) {
+                throw new MalformedURLException("Некорректный хост");
+            }
+        }
+        // www.com остаётся как есть: без www от него ничего не осталось бы
+        if (stripWww && host.regionMatches(true, from, WWW, 0, WWW.length())) {
+            int dot = host.indexOf('.', from + WWW.length());
+            if (dot >= 0 && dot < to) {
+                from += WWW.length();
+            }
+        }
+        for (int i = from; i < to; i++) {
+            char c = host.charAt(i);
+            result.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+    }
+
+    private static boolean isLabelChar(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_';
+    }
+
+    private static void appendIpv6(StringBuilder result, String input, int from, int to)
+            throws MalformedURLException {
+        if (to - from < 4) {
+            throw new MalformedURLException("Некорректный адрес IPv6");
+        }
+        result.append('[');
+        for (int i = from + 1; i < to - 1; i++) {
+            char c = Character.toLowerCase(input.charAt(i));
+            if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c == ':' || c == '.')) {
+                throw new MalformedURLException("Некорректный адрес IPv6");
+            }
+            result.append(c);
+        }
+        result.append(']');
+    }
+}
@@ -11,11 +11,48 @@ DROP TABLE IF EXISTS url_checks;
 
 create table url_checks
 (
-    id          bigint generated by default as identity not null,
-    status_code integer                                 not null,
-    title       varchar(255),
-    h1          varchar(255),
-    description text,
-    created_at  timestamp                               not null,
-    url_id      bigint                                  not null
-);
\ No newline at end of file
+    id                 bigint generated by default as identity not null,
+    status_code        integer,
+    title              varchar(255),
+    h1                 varchar(255),
+    description        text,
+    created_at         timestamp                               not null,
+    url_id             bigint                                  not null,
+    connect_time_ms    bigint,
+    ttfb_ms            bigint,
+    total_time_ms      bigint,
+    body_bytes         bigint,
+    transfer_bytes     bigint,
+    redirect_count     integer,
+    final_url          varchar(2048),
+    body_hash          varchar(64),
+    broken_links_count integer,
+    broken_links       text,
+    fields             text,
+    error              varchar(1024)
+);
+
+create index url_checks_url_id_id on url_checks (url_id, id);
+
+DROP TABLE IF EXISTS check_alerts;
+
+create table check_alerts
+(
+    id                bigint generated by default as identity not null,
+    endpoint          varchar(2048)                           not null,
+    url_id            bigint                                  not null,
+    check_id          bigint                                  not null,
+    previous_check_id bigint                                  not null,
+    old_status_code   integer,
+    new_status_code   integer,
+    old_title         varchar(255),
+    new_title         varchar(255),
+    created_at        timestamp                               not null,
+    attempts          integer                                 not null,
+    next_attempt_at   timestamp                               not null,
+    delivered_at      timestamp,
+    last_error        varchar(1024)
+);
+
+create unique index check_alerts_check_id_endpoint on check_alerts (check_id, endpoint);
+create index check_alerts_endpoint_id on check_alerts (endpoint, id);